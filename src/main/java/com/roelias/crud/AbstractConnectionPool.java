@@ -1,22 +1,184 @@
 package com.roelias.crud;
 
 import com.roelias.crud.Exceptions.TenantContextException;
+import com.roelias.crud.Exceptions.TenantException;
+import com.roelias.crud.Exceptions.TenantNotFoundException;
+import com.roelias.crud.Exceptions.TenantUnavailableException;
 import org.apache.poi.ss.formula.functions.T;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Base de los pools multi-tenant.
+ * <p>
+ * addConnection solo registra la configuración; el objeto de conexión se crea en el primer
+ * getConnection(tenantId) y una sola vez aunque lleguen varias peticiones a la vez.
+ * Opcionalmente se retiran, en orden LRU, los tenants inactivos o los que excedan un
+ * máximo de tenants activos; se vuelven a crear en el siguiente acceso. Como al reemplazarlos, el
+ * objeto retirado se cierra tras {@link #setDrainTimeout drainTimeout}, así que quien lo obtuvo justo
+ * antes puede seguir usándolo.
+ * </p>
+ * <p>
+ * Con {@link #enableHealthChecks} se verifica periódicamente cada tenant activo; los que fallan
+ * quedan UNHEALTHY y sus peticiones fallan de inmediato con {@link TenantUnavailableException}
+ * en lugar de esperar timeouts de red, hasta que un nuevo chequeo (con backoff exponencial) tenga éxito.
+ * </p>
+ * <p>
+ * {@link #replaceConnection} cambia la configuración de un tenant activo sin cortar el servicio:
+ * crea y valida el nuevo objeto de conexión, lo publica de forma atómica y cierra el anterior tras
+ * {@link #setDrainTimeout drainTimeout}, para que el trabajo en curso termine con él.
+ * </p>
+ * <p>
+ * Con un {@link ShardRouter} los tenants sin configuración explícita se conectan al shard que les
+ * asigna el router; la configuración explícita tiene prioridad.
+ * </p>
+ */
 public abstract class AbstractConnectionPool<T> implements TenantConnectionPool<T>{
+    private static final System.Logger LOGGER = System.getLogger(AbstractConnectionPool.class.getName());
+
+    protected static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "tenant-pool-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     protected final Map<String, T> connectionPool = new ConcurrentHashMap<>();
     protected final Map<String, TenantConnection> connectionConfigs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> lastAccess = new ConcurrentHashMap<>();
+    // Configuración con la que se creó cada tenant activo resuelto por el ShardRouter
+    private final Map<String, TenantConnection> routedConfigs = new ConcurrentHashMap<>();
+    private volatile ShardRouter shardRouter;
+
+    private volatile int maxActiveTenants = Integer.MAX_VALUE;
+    private volatile Duration tenantIdleTimeout = Duration.ZERO;
+    private ScheduledFuture<?> idleEviction;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evictedIdle = new LongAdder();
+    private final LongAdder evictedCapacity = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+    private volatile Duration drainTimeout = Duration.ofSeconds(30);
+
+    private final Map<String, HealthState> healthStates = new ConcurrentHashMap<>();
+    private final List<TenantHealthListener> healthListeners = new CopyOnWriteArrayList<>();
+    private volatile Duration healthCheckInterval = Duration.ZERO;
+    private volatile Duration maxHealthBackoff = Duration.ZERO;
+    private ScheduledFuture<?> healthChecks;
+    private ExecutorService healthExecutor;
+    private final LongAdder healthChecksRun = new LongAdder();
+    private final LongAdder healthChecksFailed = new LongAdder();
+    private final LongAdder healthStateChanges = new LongAdder();
 
+    /**
+     * Estado de salud de un tenant activo
+     */
+    private static final class HealthState {
+        final AtomicBoolean checking = new AtomicBoolean();
+        volatile TenantHealth health = TenantHealth.HEALTHY;
+        volatile Throwable lastError;
+        volatile int consecutiveFailures;
+        volatile long nextCheckAt = System.nanoTime();
+    }
+
+    /**
+     * Registra la configuración; si el tenant ya estaba activo con otra configuración se reemplaza
+     * sin validar (ver {@link #replaceConnection})
+     */
     @Override
     public void addConnection(TenantConnection connection) {
-        T connectionObject = createConnectionObject(connection);
-        connectionPool.put(connection.getTenantId(), connectionObject);
-        connectionConfigs.put(connection.getTenantId(), connection);
+        swap(connection, false);
+    }
+
+    /**
+     * Reemplaza la configuración de un tenant sin cortar el servicio. Si está activo, el nuevo objeto
+     * de conexión se crea y valida antes de publicarse; las nuevas peticiones lo usan desde ese momento
+     * y el anterior se cierra tras drainTimeout.
+     *
+     * @throws TenantException si la nueva configuración no pasa la validación; se conserva la anterior
+     */
+    @Override
+    public void replaceConnection(TenantConnection connection) {
+        swap(connection, true);
+    }
+
+    private void swap(TenantConnection config, boolean validate) {
+        String tenantId = config.getTenantId();
+        TenantConnection explicit = connectionConfigs.put(tenantId, config);
+        TenantConnection previous = explicit != null ? explicit : routedConfigs.get(tenantId);
+        if ((previous != null && previous.sameSettings(config)) || !connectionPool.containsKey(tenantId)) {
+            // Sin objeto activo: se creará con la nueva configuración en el próximo acceso
+            routedConfigs.remove(tenantId);
+            return;
+        }
+        try {
+            publish(tenantId, config, validate);
+            routedConfigs.remove(tenantId);
+        } catch (TenantException e) {
+            if (explicit != null) {
+                connectionConfigs.replace(tenantId, config, explicit);
+            } else {
+                // Tenant enrutado (o sin configuración previa): sigue resolviéndose con el ShardRouter,
+                // cuya configuración se conserva en routedConfigs
+                connectionConfigs.remove(tenantId, config);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Crea el objeto de conexión con la nueva configuración, lo publica y retira el anterior
+     */
+    private void publish(String tenantId, TenantConnection config, boolean validate) {
+        T replacement = createConnectionObject(config);
+        if (validate) {
+            try {
+                checkConnection(replacement);
+            } catch (Exception e) {
+                closeConnection(replacement);
+                throw new TenantException("New configuration for tenant " + tenantId + " failed validation", e);
+            }
+        }
+        T retired = connectionPool.put(tenantId, replacement);
+        created.increment();
+        touch(tenantId);
+        healthStates.remove(tenantId);
+        if (retired != null) {
+            replaced.increment();
+            retire(retired);
+        }
+    }
+
+    /**
+     * Cierra un objeto de conexión reemplazado o desalojado cuando termina el periodo de drenaje
+     */
+    private void retire(T connection) {
+        if (drainTimeout.isZero()) {
+            closeConnection(connection);
+        } else {
+            SCHEDULER.schedule(() -> closeConnection(connection), drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Tiempo que un objeto de conexión reemplazado sigue abierto para el trabajo en curso
+     */
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
     }
 
     @Override
@@ -30,33 +192,402 @@ public abstract class AbstractConnectionPool<T> implements TenantConnectionPool<
 
     @Override
     public Optional<T> getConnection(String tenantId) {
-        return Optional.ofNullable(connectionPool.get(tenantId));
+        return Optional.ofNullable(acquire(tenantId));
+    }
+
+    @Override
+    public T getRequiredConnection(String tenantId) {
+        T connection = acquire(tenantId);
+        if (connection == null) {
+            throw new TenantNotFoundException(tenantId);
+        }
+        return connection;
+    }
+
+    /**
+     * Devuelve el objeto de conexión del tenant creándolo si hace falta, o null si no está configurado
+     */
+    protected T acquire(String tenantId) {
+        HealthState state = healthStates.get(tenantId);
+        if (state != null && state.health == TenantHealth.UNHEALTHY) {
+            throw new TenantUnavailableException(tenantId, state.lastError);
+        }
+        T connection = connectionPool.get(tenantId);
+        if (connection == null) {
+            if (!connectionConfigs.containsKey(tenantId) && shardRouter == null) {
+                return null;
+            }
+            boolean[] createdNow = {false};
+            connection = connectionPool.computeIfAbsent(tenantId, id -> {
+                // Se lee dentro del cómputo para no crear con una configuración ya reemplazada
+                TenantConnection config = connectionConfigs.get(id);
+                if (config == null) {
+                    ShardRouter router = shardRouter;
+                    if (router == null) {
+                        return null;
+                    }
+                    config = router.toConnection(id);
+                    routedConfigs.put(id, config);
+                }
+                createdNow[0] = true;
+                return createConnectionObject(config);
+            });
+            if (connection == null) {
+                return null;
+            }
+            if (createdNow[0]) {
+                created.increment();
+                touch(tenantId);
+                enforceMaxActiveTenants(tenantId);
+                return connection;
+            }
+        }
+        touch(tenantId);
+        return connection;
+    }
+
+    private void touch(String tenantId) {
+        AtomicLong access = lastAccess.get(tenantId);
+        if (access == null) {
+            access = lastAccess.computeIfAbsent(tenantId, id -> new AtomicLong());
+        }
+        access.lazySet(System.nanoTime());
     }
 
     @Override
     public boolean hasConnection(String tenantId) {
-        return connectionPool.containsKey(tenantId);
+        return connectionConfigs.containsKey(tenantId);
     }
 
     @Override
     public void removeConnection(String tenantId) {
-        T connection = connectionPool.remove(tenantId);
-        connectionConfigs.remove(tenantId);
+        T connection = forget(tenantId);
         if (connection != null) {
             closeConnection(connection);
         }
     }
 
+    /**
+     * Quita el tenant de inmediato para las nuevas peticiones y cierra su objeto de conexión tras
+     * drainTimeout, para que el trabajo en curso termine con él
+     */
+    @Override
+    public void retireConnection(String tenantId) {
+        T connection = forget(tenantId);
+        if (connection != null) {
+            retire(connection);
+        }
+    }
+
+    private T forget(String tenantId) {
+        connectionConfigs.remove(tenantId);
+        routedConfigs.remove(tenantId);
+        lastAccess.remove(tenantId);
+        healthStates.remove(tenantId);
+        T connection = connectionPool.remove(tenantId);
+        if (connection != null) {
+            removed.increment();
+        }
+        return connection;
+    }
+
     @Override
     public Set<String> getConfiguredTenants() {
+        return connectionConfigs.keySet();
+    }
+
+    /**
+     * Tenants con objeto de conexión abierto en este momento
+     */
+    public Set<String> getActiveTenants() {
         return connectionPool.keySet();
     }
 
     @Override
     public void clear() {
-        connectionPool.values().forEach(this::closeConnection);
+        synchronized (this) {
+            if (idleEviction != null) {
+                idleEviction.cancel(false);
+                idleEviction = null;
+            }
+            stopHealthChecks();
+        }
+        connectionPool.values().forEach(connection -> {
+            removed.increment();
+            closeConnection(connection);
+        });
         connectionPool.clear();
         connectionConfigs.clear();
+        routedConfigs.clear();
+        lastAccess.clear();
+        healthStates.clear();
+    }
+
+    /**
+     * Resuelve por el router los tenants sin configuración explícita; null lo desactiva
+     */
+    public void setShardRouter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public ShardRouter getShardRouter() {
+        return shardRouter;
+    }
+
+    /**
+     * Reconecta los tenants activos cuyo shard cambió en el router (tras agregar o quitar shards).
+     * Cada uno se reemplaza como en {@link #replaceConnection}: el objeto anterior se drena.
+     *
+     * @return tenants movidos
+     */
+    public int refreshRouting() {
+        ShardRouter router = shardRouter;
+        if (router == null) {
+            return 0;
+        }
+        int moved = 0;
+        for (Map.Entry<String, TenantConnection> entry : routedConfigs.entrySet()) {
+            String tenantId = entry.getKey();
+            TenantConnection target = router.toConnection(tenantId);
+            if (!entry.getValue().sameSettings(target) && routedConfigs.replace(tenantId, entry.getValue(), target)) {
+                publish(tenantId, target, false);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Configuración con la que se crea o se creó el tenant (explícita o resuelta por el router)
+     */
+    TenantConnection resolveConfig(String tenantId) {
+        TenantConnection config = connectionConfigs.get(tenantId);
+        if (config == null) {
+            config = routedConfigs.get(tenantId);
+        }
+        return config;
+    }
+
+    /**
+     * Máximo de tenants con conexión abierta; al superarlo se retira el menos usado recientemente
+     */
+    public void setMaxActiveTenants(int maxActiveTenants) {
+        if (maxActiveTenants < 1) {
+            throw new IllegalArgumentException("maxActiveTenants must be at least 1");
+        }
+        this.maxActiveTenants = maxActiveTenants;
+    }
+
+    /**
+     * Cierra las conexiones de los tenants sin acceso durante este tiempo. Duration.ZERO lo desactiva
+     */
+    public synchronized void setTenantIdleTimeout(Duration timeout) {
+        this.tenantIdleTimeout = timeout;
+        if (idleEviction != null) {
+            idleEviction.cancel(false);
+            idleEviction = null;
+        }
+        if (!timeout.isZero()) {
+            long period = Math.min(Math.max(timeout.toMillis() / 4, 1000), 60_000);
+            idleEviction = SCHEDULER.scheduleWithFixedDelay(this::evictIdleTenants, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Cierra los tenants sin acceso durante más de tenantIdleTimeout
+     */
+    public void evictIdleTenants() {
+        Duration timeout = tenantIdleTimeout;
+        if (timeout.isZero()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long limit = timeout.toNanos();
+        for (Map.Entry<String, AtomicLong> entry : lastAccess.entrySet()) {
+            if (!connectionPool.containsKey(entry.getKey())) {
+                lastAccess.remove(entry.getKey(), entry.getValue());
+            } else if (now - entry.getValue().get() > limit && evict(entry.getKey())) {
+                evictedIdle.increment();
+            }
+        }
+    }
+
+    private void enforceMaxActiveTenants(String justCreated) {
+        while (connectionPool.size() > maxActiveTenants) {
+            String eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (String tenantId : connectionPool.keySet()) {
+                AtomicLong access = lastAccess.get(tenantId);
+                long value = access == null ? Long.MIN_VALUE : access.get();
+                if (!tenantId.equals(justCreated) && value < eldestAccess) {
+                    eldest = tenantId;
+                    eldestAccess = value;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (evict(eldest)) {
+                evictedCapacity.increment();
+            }
+        }
+    }
+
+    /**
+     * Retira el objeto de conexión de un tenant conservando su configuración; se cierra tras drainTimeout
+     */
+    private boolean evict(String tenantId) {
+        T connection = connectionPool.get(tenantId);
+        if (connection == null || !connectionPool.remove(tenantId, connection)) {
+            return false;
+        }
+        lastAccess.remove(tenantId);
+        routedConfigs.remove(tenantId);
+        // Al recrearse empieza sano: el primer acceso o chequeo lo vuelve a evaluar
+        healthStates.remove(tenantId);
+        retire(connection);
+        return true;
+    }
+
+    /**
+     * Verifica cada tenant activo con este intervalo; los UNHEALTHY se reintentan con backoff
+     * exponencial hasta maxBackoff. Duration.ZERO lo desactiva
+     */
+    public synchronized void enableHealthChecks(Duration interval, Duration maxBackoff) {
+        stopHealthChecks();
+        this.healthCheckInterval = interval;
+        this.maxHealthBackoff = maxBackoff.compareTo(interval) < 0 ? interval : maxBackoff;
+        if (!interval.isZero()) {
+            healthExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            long period = Math.max(interval.toMillis() / 4, 100);
+            healthChecks = SCHEDULER.scheduleWithFixedDelay(this::runHealthChecks, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void enableHealthChecks(Duration interval) {
+        enableHealthChecks(interval, Duration.ofMinutes(5));
+    }
+
+    private void stopHealthChecks() {
+        if (healthChecks != null) {
+            healthChecks.cancel(false);
+            healthChecks = null;
+        }
+        if (healthExecutor != null) {
+            healthExecutor.shutdownNow();
+            healthExecutor = null;
+        }
+        // Sin chequeos nadie podría recuperar a los UNHEALTHY
+        healthStates.clear();
+    }
+
+    public void addHealthListener(TenantHealthListener listener) {
+        healthListeners.add(listener);
+    }
+
+    public void removeHealthListener(TenantHealthListener listener) {
+        healthListeners.remove(listener);
+    }
+
+    /**
+     * Estado del tenant según el último chequeo (HEALTHY si aún no se verificó)
+     */
+    public TenantHealth getHealth(String tenantId) {
+        HealthState state = healthStates.get(tenantId);
+        return state == null ? TenantHealth.HEALTHY : state.health;
+    }
+
+    /**
+     * Lanza los chequeos vencidos, cada uno en su propio hilo virtual
+     */
+    private void runHealthChecks() {
+        ExecutorService executor = healthExecutor;
+        if (executor == null) {
+            return;
+        }
+        healthStates.keySet().removeIf(tenantId -> !connectionPool.containsKey(tenantId));
+        long now = System.nanoTime();
+        for (Map.Entry<String, T> entry : connectionPool.entrySet()) {
+            String tenantId = entry.getKey();
+            HealthState state = healthStates.computeIfAbsent(tenantId, id -> new HealthState());
+            if (now - state.nextCheckAt < 0 || !state.checking.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        checkTenant(tenantId, entry.getValue(), state);
+                    } finally {
+                        state.checking.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Executor detenido por clear() o por un nuevo enableHealthChecks
+                state.checking.set(false);
+                return;
+            }
+        }
+    }
+
+    private void checkTenant(String tenantId, T connection, HealthState state) {
+        healthChecksRun.increment();
+        try {
+            checkConnection(connection);
+            state.consecutiveFailures = 0;
+            state.nextCheckAt = System.nanoTime() + healthCheckInterval.toNanos();
+            if (state.health == TenantHealth.UNHEALTHY) {
+                state.health = TenantHealth.HEALTHY;
+                state.lastError = null;
+                fireHealthChange(tenantId, TenantHealth.UNHEALTHY, TenantHealth.HEALTHY, null);
+            }
+        } catch (Exception e) {
+            healthChecksFailed.increment();
+            int failures = ++state.consecutiveFailures;
+            state.nextCheckAt = System.nanoTime()
+                    + healthBackoffNanos(healthCheckInterval.toNanos(), maxHealthBackoff.toNanos(), failures);
+            state.lastError = e;
+            if (state.health == TenantHealth.HEALTHY) {
+                state.health = TenantHealth.UNHEALTHY;
+                fireHealthChange(tenantId, TenantHealth.HEALTHY, TenantHealth.UNHEALTHY, e);
+            }
+        }
+    }
+
+    /**
+     * Espera tras {@code failures} fallos seguidos: interval * 2^(failures-1), limitada a max.
+     * Satura antes de desplazar: con intervalos de horas el desplazamiento desbordaría a negativo
+     */
+    static long healthBackoffNanos(long intervalNanos, long maxNanos, int failures) {
+        int shift = Math.min(Math.max(failures - 1, 0), 20);
+        if (intervalNanos > maxNanos >> shift) {
+            return maxNanos;
+        }
+        return intervalNanos << shift;
+    }
+
+    private void fireHealthChange(String tenantId, TenantHealth previous, TenantHealth current, Throwable cause) {
+        healthStateChanges.increment();
+        LOGGER.log(current == TenantHealth.HEALTHY ? System.Logger.Level.INFO : System.Logger.Level.WARNING,
+                "Tenant " + tenantId + " is now " + current, cause);
+        for (TenantHealthListener listener : healthListeners) {
+            try {
+                listener.onStateChange(tenantId, previous, current, cause);
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Tenant health listener failed", e);
+            }
+        }
+    }
+
+    public TenantPoolMetrics getMetrics() {
+        int unhealthy = 0;
+        for (HealthState state : healthStates.values()) {
+            if (state.health == TenantHealth.UNHEALTHY) {
+                unhealthy++;
+            }
+        }
+        return new TenantPoolMetrics(connectionConfigs.size(), connectionPool.size(), created.sum(),
+                evictedIdle.sum(), evictedCapacity.sum(), removed.sum(), replaced.sum(),
+                unhealthy, healthChecksRun.sum(), healthChecksFailed.sum(), healthStateChanges.sum());
     }
 
     /**
@@ -68,4 +599,9 @@ public abstract class AbstractConnectionPool<T> implements TenantConnectionPool<
      * Método para cerrar la conexión (puede ser override)
      */
     protected void closeConnection(T connection) {}
+
+    /**
+     * Chequeo de salud del objeto de conexión; debe lanzar si el tenant no es alcanzable (puede ser override)
+     */
+    protected void checkConnection(T connection) throws Exception {}
 }
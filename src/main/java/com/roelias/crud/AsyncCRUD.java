@@ -0,0 +1,227 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over a {@link CRUD} repository.
+ * <p>
+ * Every operation runs on the configured executor (virtual threads by default) and returns a
+ * {@link CompletableFuture}, so independent lookups can be issued together and joined instead of
+ * running one after another. The tenant of the calling thread ({@link TenantContext}) is carried to
+ * the task, and at most {@code maxConcurrency} operations run at the same time against each
+ * {@link Jdbi} the repository resolves, so a burst of futures queues here instead of exhausting the
+ * connection pool. The limit is shared by every facade with the same {@code maxConcurrency}, including
+ * facades of other repositories on the same Jdbi, so calling {@link CRUD#async()} repeatedly does not
+ * multiply it.
+ * </p>
+ *
+ * <pre>{@code
+ * AsyncCRUD<User, Long> users = userCrud.async();
+ *
+ * CompletableFuture<Optional<User>> owner = users.findByIdAsync(ownerId);
+ * CompletableFuture<List<Order>> orders = orderCrud.async().findAllAsync(recentOrdersQuery);
+ * CompletableFuture<Long> total = users.countAsync();
+ *
+ * CompletableFuture.allOf(owner, orders, total).join();
+ * }</pre>
+ *
+ * <p>
+ * Primary pinning with {@link CRUD#onPrimary} is per thread and is not carried to the task; wrap the
+ * call inside the operation instead: {@code users.supplyAsync(crud -> CRUD.onPrimary(() -> crud.findById(id)))}.
+ * The read-your-writes window ({@link CRUD#setReadYourWritesWindow}) is per thread too: each operation
+ * runs on its own thread, so a {@code findByIdAsync} issued after {@code saveAsync} completes may read
+ * from a replica that has not caught up. Pin that read as above, or write and read in one operation:
+ * {@code users.supplyAsync(crud -> crud.findById(crud.save(user)))}.
+ * </p>
+ *
+ * @param <E> the entity type
+ * @param <ID> the primary key type
+ */
+public class AsyncCRUD<E, ID> {
+
+    /**
+     * Default number of concurrent operations per {@link Jdbi}, matching the default pool size
+     * of {@link PoolSettings}.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    static final Executor VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Permits per Jdbi and limit, shared by every facade; guarded by its own monitor.
+    // Weak keys: the Jdbi instances of evicted or replaced tenants must not be kept alive here
+    private static final Map<Jdbi, Map<Integer, Semaphore>> PERMITS = new WeakHashMap<>();
+
+    private final CRUD<E, ID> crud;
+    private final Executor executor;
+    private final int maxConcurrency;
+
+    /**
+     * Creates a facade running on virtual threads with {@link #DEFAULT_MAX_CONCURRENCY}.
+     *
+     * @param crud the repository to delegate to
+     */
+    public AsyncCRUD(CRUD<E, ID> crud) {
+        this(crud, VIRTUAL_THREADS, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Creates a facade running on the given executor.
+     *
+     * @param crud the repository to delegate to
+     * @param executor the executor running the operations; the tenant context is propagated to it
+     * @param maxConcurrency maximum operations in flight per {@link Jdbi}
+     * @throws IllegalArgumentException if maxConcurrency is less than 1
+     */
+    public AsyncCRUD(CRUD<E, ID> crud, Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.crud = Objects.requireNonNull(crud, "crud");
+        this.executor = TenantContext.wrap(Objects.requireNonNull(executor, "executor"));
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Asynchronous {@link CRUD#findById(Object)}.
+     */
+    public CompletableFuture<Optional<E>> findByIdAsync(ID id) {
+        return supplyAsync(crud -> crud.findById(id));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#existsById(Object)}.
+     */
+    public CompletableFuture<Boolean> existsByIdAsync(ID id) {
+        return supplyAsync(crud -> crud.existsById(id));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#findAll()}.
+     */
+    public CompletableFuture<List<E>> findAllAsync() {
+        return supplyAsync(CRUD::findAll);
+    }
+
+    /**
+     * Asynchronous {@link CRUD#findAll(int, int)}.
+     */
+    public CompletableFuture<List<E>> findAllAsync(int limit, int offset) {
+        return supplyAsync(crud -> crud.findAll(limit, offset));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#findAll(SqlBuilder)}.
+     */
+    public CompletableFuture<List<E>> findAllAsync(SqlBuilder query) {
+        return supplyAsync(crud -> crud.findAll(query));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#count()}.
+     */
+    public CompletableFuture<Long> countAsync() {
+        return supplyAsync(CRUD::count);
+    }
+
+    /**
+     * Asynchronous {@link CRUD#save(Object)}.
+     */
+    public CompletableFuture<ID> saveAsync(E entity) {
+        return supplyAsync(crud -> crud.save(entity));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#saveAll(List)}.
+     */
+    public CompletableFuture<Void> saveAllAsync(List<E> entities) {
+        return supplyAsync(crud -> {
+            crud.saveAll(entities);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link CRUD#update(Object)}.
+     */
+    public CompletableFuture<Boolean> updateAsync(E entity) {
+        return supplyAsync(crud -> crud.update(entity));
+    }
+
+    /**
+     * Asynchronous {@link CRUD#deleteById(Object)}.
+     */
+    public CompletableFuture<Boolean> deleteByIdAsync(ID id) {
+        return supplyAsync(crud -> crud.deleteById(id));
+    }
+
+    /**
+     * Runs any repository operation asynchronously, under the same executor, tenant propagation
+     * and concurrency limit as the other methods.
+     *
+     * <pre>{@code
+     * CompletableFuture<List<Task>> urgent = tasks.supplyAsync(crud -> crud.findAllContaining("tags", List.of("urgent")));
+     * }</pre>
+     *
+     * @param operation the work to run against the repository
+     * @return a future completed with the operation's result, or exceptionally with its exception
+     */
+    public <R> CompletableFuture<R> supplyAsync(Function<CRUD<E, ID>, R> operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            // Resolved inside the task so that a TenantJdbiProvider sees the propagated tenant
+            Semaphore semaphore = permitsFor(crud.getConfiguredJdbi(), true);
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return operation.apply(crud);
+            } finally {
+                semaphore.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Operations currently holding a slot on the {@link Jdbi} the repository resolves.
+     *
+     * @return the number of operations in flight on that Jdbi
+     */
+    public int getInFlight() {
+        Semaphore semaphore = permitsFor(crud.getConfiguredJdbi(), false);
+        return semaphore == null ? 0 : maxConcurrency - semaphore.availablePermits();
+    }
+
+    private Semaphore permitsFor(Jdbi jdbi, boolean create) {
+        synchronized (PERMITS) {
+            if (!create) {
+                Map<Integer, Semaphore> byLimit = PERMITS.get(jdbi);
+                return byLimit == null ? null : byLimit.get(maxConcurrency);
+            }
+            return PERMITS.computeIfAbsent(jdbi, k -> new HashMap<>())
+                    .computeIfAbsent(maxConcurrency, Semaphore::new);
+        }
+    }
+
+    public CRUD<E, ID> getCrud() {
+        return crud;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -3,8 +3,12 @@ package com.roelias.crud;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.roelias.crud.Exceptions.OptimisticLockException;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.SqlStatement;
 import org.jdbi.v3.core.statement.Update;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -15,9 +19,15 @@ import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public abstract class CRUD<E, ID> {
 
@@ -29,6 +39,12 @@ public abstract class CRUD<E, ID> {
     private boolean userJdbiProvider = false;
     private JdbiProvider provider = null;
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile Replicas replicas = Replicas.NONE;
+    private volatile long readYourWritesNanos = 0;
+    private volatile GroupCommitter groupCommitter;
+    // Per-thread onPrimary nesting depth and last write time, shared by all repositories
+    private static final ThreadLocal<int[]> primaryPinDepth = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<long[]> lastWriteNanos = ThreadLocal.withInitial(() -> new long[1]);
 
     // ================================
     // ANNOTATIONS
@@ -39,6 +55,23 @@ public abstract class CRUD<E, ID> {
         POSTGRESQL
     }
 
+    /**
+     * Strategy used to pick a replica for each read.
+     *
+     * @see #useReplicas(List, ReplicaSelection)
+     */
+    public enum ReplicaSelection {
+        /**
+         * Cycle through the replicas in order.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * Pick the replica with the fewest reads currently in flight from this repository.
+         */
+        LEAST_LOADED
+    }
+
     /**
      * Marks a class as a database table entity.
      * <p>
@@ -124,6 +157,40 @@ public abstract class CRUD<E, ID> {
          * @return true to auto-generate, false to leave null fields as-is
          */
         boolean autoGenerate() default true;
+
+        /**
+         * How the UUID is stored on MySQL. PostgreSQL always uses the native UUID type.
+         * @return the storage strategy, defaults to a 36-character string
+         */
+        Storage storage() default Storage.STRING;
+
+        /**
+         * UUID storage strategies for {@link Dialect#MYSQL}.
+         */
+        enum Storage {
+            /**
+             * Store the UUID as its 36-character text form in a VARCHAR(36) column.
+             */
+            STRING,
+
+            /**
+             * Store the UUID as 16 raw bytes in a BINARY(16) column.
+             * <p>
+             * <strong>Pros:</strong> Less than half the size of STRING, smaller indexes<br>
+             * <strong>Cons:</strong> Not human-readable without BIN_TO_UUID()
+             * </p>
+             */
+            BINARY,
+
+            /**
+             * Store the UUID as 16 raw bytes with the time-high and time-low fields swapped.
+             * <p>
+             * Same layout as MySQL's {@code UUID_TO_BIN(uuid, 1)}. Time-based UUIDs (v1)
+             * become roughly sequential, which keeps InnoDB index inserts local.
+             * </p>
+             */
+            BINARY_SWAPPED
+        }
     }
 
     /**
@@ -141,18 +208,32 @@ public abstract class CRUD<E, ID> {
      *   <li>Lists and Arrays of objects</li>
      * </ul>
      *
+     * <p>
+     * Content can be filtered in the database with {@link CRUD#findAllByJsonContains(String, Object)}
+     * and {@link CRUD#findAllByJsonPath(String, String, Object)}.
+     * </p>
+     *
      * @since 1.0
      */
     @Target(ElementType.FIELD)
     @Retention(RetentionPolicy.RUNTIME)
     public @interface JsonColumn {
+        /**
+         * Dotted JSON paths (e.g. {@code "theme"} or {@code "settings.lang"}) that are
+         * queried by equality. The DDL template suggests an expression index on
+         * PostgreSQL and an indexed generated column on MySQL for each path.
+         * @return the indexed paths, empty by default
+         */
+        String[] indexedPaths() default {};
     }
 
     /**
      * Marks a field for array serialization using a separator.
      * <p>
-     * List&lt;String&gt; and String[] fields will be joined into a single string
-     * using the specified separator for database storage.
+     * List and array fields will be joined into a single string using the specified
+     * separator for database storage. Elements containing the separator or a backslash
+     * are escaped with a backslash. String, Long, Integer, Double, UUID and enum
+     * elements are decoded back to their declared type.
      * </p>
      *
      * <h4>Example:</h4>
@@ -162,6 +243,9 @@ public abstract class CRUD<E, ID> {
      *
      * @ArrayColumn(separator = "|")
      * private String[] categories; // Stored as "cat1|cat2|cat3"
+     *
+     * @ArrayColumn(storage = ArrayColumn.Storage.NATIVE)
+     * private List<Long> groupIds; // Stored as BIGINT[] on PostgreSQL
      * }</pre>
      *
      * @since 1.0
@@ -174,6 +258,64 @@ public abstract class CRUD<E, ID> {
          * @return separator string, defaults to comma
          */
         String separator() default ",";
+
+        /**
+         * How the array is stored.
+         * @return the storage strategy, defaults to delimited text
+         */
+        Storage storage() default Storage.DELIMITED;
+
+        /**
+         * Array storage strategies.
+         */
+        enum Storage {
+            /**
+             * Join elements into a single TEXT value using {@link ArrayColumn#separator()}.
+             */
+            DELIMITED,
+
+            /**
+             * Store elements in a native PostgreSQL array (TEXT[], BIGINT[], INTEGER[], UUID[]).
+             * <p>
+             * Supports GIN indexes and the containment operators used by
+             * {@link CRUD#findAllContaining(String, Collection)} and
+             * {@link CRUD#findAllOverlapping(String, Collection)}.
+             * Falls back to DELIMITED on MySQL.
+             * </p>
+             */
+            NATIVE
+        }
+    }
+
+    /**
+     * Marks a String field for full-text search.
+     * <p>
+     * All annotated fields of an entity form a single search document. On PostgreSQL the
+     * DDL template adds a generated {@code search_vector TSVECTOR} column with a GIN index;
+     * on MySQL it suggests a FULLTEXT index over the columns. Query with
+     * {@link CRUD#search(String, int)} or {@link CRUD#getFullTextPredicate(String)}.
+     * </p>
+     *
+     * <h4>Example:</h4>
+     * <pre>{@code
+     * @FullText
+     * private String title;
+     *
+     * @FullText
+     * private String body;
+     * }</pre>
+     *
+     * @since 1.6
+     */
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface FullText {
+        /**
+         * The PostgreSQL text search configuration. Ignored on MySQL.
+         * The value of the first annotated field is used for the whole entity.
+         * @return the configuration name, defaults to english
+         */
+        String language() default "english";
     }
 
     /**
@@ -231,6 +373,24 @@ public abstract class CRUD<E, ID> {
     public @interface UpdatedDate {
     }
 
+    /**
+     * Marks an integer field as the optimistic-locking version of the row.
+     * <p>
+     * The field must be {@code int}, {@code Integer}, {@code long} or {@code Long}. It is set to 0 on
+     * insert. Every {@link CRUD#update(Object)} and {@link CRUD#updateAll(List)} only matches the row
+     * if its version is still the one the entity was read with, increments it in the database and in
+     * the entity, and throws {@link OptimisticLockException} if another writer got there first.
+     * Patches and atomic increments also increment it. Declare it as
+     * {@code @Version private Long version;}.
+     * </p>
+     *
+     * @since 1.0
+     */
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Version {
+    }
+
     /**
      * Specifies a default value for a field.
      * <p>
@@ -324,6 +484,15 @@ public abstract class CRUD<E, ID> {
     private static final Map<Class<?>, Field> idFieldCache = new ConcurrentHashMap<>();
     private static final Map<Class<?>, String> insertSqlCache = new ConcurrentHashMap<>();
     private static final Map<Class<?>, String> updateSqlCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, String> findByIdSqlCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, String> upsertSqlCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Optional<Field>> versionFieldCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Field[]> fullTextFieldsCache = new ConcurrentHashMap<>();
+
+    /**
+     * Name of the generated tsvector column used for full-text search on PostgreSQL.
+     */
+    public static final String FULL_TEXT_VECTOR_COLUMN = "search_vector";
     /**
      * Creates a new CRUD instance for the specified entity.
      * <p>
@@ -340,6 +509,7 @@ public abstract class CRUD<E, ID> {
         this.entityClass = entityClass;
         this.idType = idType;
         this.tableName = extractTableName();
+        this.dialect = entityClass.getAnnotation(Table.class).dialect();
     }
 
     /**
@@ -353,6 +523,7 @@ public abstract class CRUD<E, ID> {
         this.entityClass = entityClass;
         this.idType = idType;
         this.tableName = extractTableName();
+        this.dialect = entityClass.getAnnotation(Table.class).dialect();
         this.userJdbiProvider = true;
     }
 
@@ -380,6 +551,286 @@ public abstract class CRUD<E, ID> {
             return jdbi;
         }
     }
+
+    /**
+     * Starts configuring a write-behind buffer that persists this repository's entities with
+     * batched, coalesced upserts in the background.
+     *
+     * <pre>{@code
+     * WriteBehindBuffer<Reading, String> buffer = readingCrud.writeBehind()
+     *         .flushInterval(Duration.ofMillis(250))
+     *         .build();
+     * }</pre>
+     *
+     * @return a builder for a {@link WriteBehindBuffer} bound to this repository
+     */
+    public WriteBehindBuffer.Builder<E, ID> writeBehind() {
+        return WriteBehindBuffer.builder(this);
+    }
+
+    /**
+     * Starts configuring a SKIP LOCKED work queue over this repository's table.
+     *
+     * <pre>{@code
+     * WorkQueue<Job, Long> queue = jobCrud.workQueue()
+     *         .where("status = :status").param("status", "PENDING")
+     *         .batchSize(20)
+     *         .build();
+     * queue.poll(jobs -> jobs.forEach(this::process));
+     * }</pre>
+     *
+     * @return a builder for a {@link WorkQueue} bound to this repository
+     */
+    public WorkQueue.Builder<E, ID> workQueue() {
+        return WorkQueue.builder(this);
+    }
+
+    /**
+     * Enables group commit for {@link #save(Object)} and {@link #update(Object)}.
+     * <p>
+     * Concurrent calls on this repository that target the same {@link Jdbi} are collected for up to
+     * {@code window}, or until {@code maxBatchSize} of them have arrived, and run in a single
+     * transaction with one commit. Each call still blocks until that commit and returns its own
+     * result or throws its own exception: every write runs behind a savepoint, so a failing row does
+     * not roll back the others. Trades up to {@code window} of extra latency per call for far fewer
+     * commits (and fsyncs) under heavy concurrent load; with a single writer it only adds latency.
+     * </p>
+     *
+     * <pre>{@code
+     * crud.enableGroupCommit(Duration.ofMillis(2), 200);
+     * // hundreds of threads calling crud.save(...) now share commits
+     * }</pre>
+     *
+     * @param window maximum time the first write of a batch waits for others to join
+     * @param maxBatchSize the batch runs as soon as it holds this many writes
+     * @throws IllegalArgumentException if window is negative or maxBatchSize is less than 1
+     */
+    public void enableGroupCommit(Duration window, int maxBatchSize) {
+        this.groupCommitter = new GroupCommitter(window, maxBatchSize);
+    }
+
+    /**
+     * Disables group commit; writes already waiting in a batch still complete.
+     */
+    public void disableGroupCommit() {
+        this.groupCommitter = null;
+    }
+
+    private static <R> R awaitGroupCommit(CompletableFuture<R> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an asynchronous facade over this repository running on virtual threads.
+     * Facades share their concurrency limit per {@link Jdbi}, so calling this repeatedly is cheap
+     * and does not raise the limit.
+     *
+     * @return a new {@link AsyncCRUD} with the default concurrency limit
+     * @see AsyncCRUD#AsyncCRUD(CRUD, java.util.concurrent.Executor, int)
+     */
+    public AsyncCRUD<E, ID> async() {
+        return new AsyncCRUD<>(this);
+    }
+
+    /**
+     * Routes the read operations of this repository to the given replicas.
+     * <p>
+     * {@link #count()}, {@link #findAll()}, {@link #findAll(int, int)}, {@link #findById(Object)},
+     * {@link #existsById(Object)} and {@link #findAll(SqlBuilder)} (and the finders built on it) run on a
+     * replica chosen with {@code selection}. Writes always go to {@link #getConfiguredJdbi()}.
+     * Reads fall back to the primary inside {@link #onPrimary(Supplier)} and, if
+     * {@link #setReadYourWritesWindow(Duration)} is set, right after a write from the same thread.
+     * </p>
+     *
+     * <pre>{@code
+     * UserCRUD users = new UserCRUD(primary);
+     * users.useReplicas(List.of(replica1, replica2), CRUD.ReplicaSelection.LEAST_LOADED);
+     *
+     * users.findAll();                                    // replica
+     * Long id = users.save(user);                         // primary
+     * User fresh = CRUD.onPrimary(() -> users.findById(id).orElseThrow()); // primary
+     * }</pre>
+     *
+     * <p>
+     * Not available on repositories that use a {@link JdbiProvider}: the replicas are a fixed list,
+     * so every tenant's reads would go to the same databases. Resolve per-tenant replicas in the
+     * provider instead.
+     * </p>
+     *
+     * @param replicas the replica instances; an empty list sends every read back to the primary
+     * @param selection how a replica is chosen for each read
+     * @throws IllegalStateException if this repository resolves its Jdbi through a {@link JdbiProvider}
+     */
+    public void useReplicas(List<Jdbi> replicas, ReplicaSelection selection) {
+        Objects.requireNonNull(selection, "selection");
+        if (userJdbiProvider && replicas != null && !replicas.isEmpty()) {
+            throw new IllegalStateException("Replicas cannot be combined with a JdbiProvider: reads of every tenant "
+                    + "would go to the same replicas");
+        }
+        this.replicas = replicas == null || replicas.isEmpty()
+                ? Replicas.NONE
+                : new Replicas(replicas.toArray(new Jdbi[0]), selection);
+    }
+
+    /**
+     * Routes reads to the given replicas using {@link ReplicaSelection#ROUND_ROBIN}.
+     *
+     * @param replicas the replica instances
+     * @throws IllegalStateException if this repository resolves its Jdbi through a {@link JdbiProvider}
+     * @see #useReplicas(List, ReplicaSelection)
+     */
+    public void useReplicas(List<Jdbi> replicas) {
+        useReplicas(replicas, ReplicaSelection.ROUND_ROBIN);
+    }
+
+    /**
+     * Keeps reads on the primary for a while after a write made by the same thread.
+     * <p>
+     * Use it when the replication lag is bounded and callers read what they just wrote
+     * without wrapping the read in {@link #onPrimary(Supplier)}. {@link Duration#ZERO} (the default)
+     * disables it.
+     * </p>
+     *
+     * @param window how long after a write reads stay on the primary
+     */
+    public void setReadYourWritesWindow(Duration window) {
+        this.readYourWritesNanos = window == null ? 0 : window.toNanos();
+    }
+
+    /**
+     * Runs {@code action} with every read of every repository pinned to the primary.
+     * <p>
+     * Pinning applies to the calling thread and nests; use it for a single lookup after a
+     * save or around a whole unit of work that must see its own writes.
+     * </p>
+     *
+     * @param action the work to run
+     * @return the value returned by {@code action}
+     */
+    public static <R> R onPrimary(Supplier<R> action) {
+        int[] depth = primaryPinDepth.get();
+        depth[0]++;
+        try {
+            return action.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * Runs a read on a replica, or on the primary when there are none or it is pinned.
+     */
+    private <R> R withReadHandle(HandleCallback<R, RuntimeException> callback) {
+        Replicas current = replicas;
+        if (current.jdbis.length == 0 || primaryPinDepth.get()[0] > 0 || insideReadYourWritesWindow()) {
+            return getConfiguredJdbi().withHandle(callback);
+        }
+        int index = current.select();
+        current.inFlight[index].incrementAndGet();
+        try {
+            return current.jdbis[index].withHandle(callback);
+        } finally {
+            current.inFlight[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * Opens a handle on the Jdbi a read would use; the replica slot is released when the handle closes.
+     */
+    private Handle openReadHandle() {
+        return readHandleOpener().get();
+    }
+
+    /**
+     * Resolves the read routing on the calling thread (tenant, primary pinning and read-your-writes
+     * window are all per thread) and returns an opener that can be run on any other thread.
+     */
+    private Supplier<Handle> readHandleOpener() {
+        Replicas current = replicas;
+        if (current.jdbis.length == 0 || primaryPinDepth.get()[0] > 0 || insideReadYourWritesWindow()) {
+            Jdbi primary = getConfiguredJdbi();
+            return primary::open;
+        }
+        return () -> openReplicaHandle(current);
+    }
+
+    private static Handle openReplicaHandle(Replicas current) {
+        int index = current.select();
+        current.inFlight[index].incrementAndGet();
+        try {
+            Handle handle = current.jdbis[index].open();
+            handle.addCleanable(() -> current.inFlight[index].decrementAndGet());
+            return handle;
+        } catch (RuntimeException e) {
+            current.inFlight[index].decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean insideReadYourWritesWindow() {
+        long window = readYourWritesNanos;
+        if (window <= 0) {
+            return false;
+        }
+        long lastWrite = lastWriteNanos.get()[0];
+        return lastWrite != 0 && System.nanoTime() - lastWrite < window;
+    }
+
+    /**
+     * Records a write from this thread for the read-your-writes window.
+     */
+    void markWrite() {
+        if (readYourWritesNanos > 0) {
+            lastWriteNanos.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Immutable set of replicas with the reads in flight on each one.
+     */
+    private static final class Replicas {
+        static final Replicas NONE = new Replicas(new Jdbi[0], ReplicaSelection.ROUND_ROBIN);
+
+        final Jdbi[] jdbis;
+        final AtomicInteger[] inFlight;
+        final ReplicaSelection selection;
+        final AtomicInteger next = new AtomicInteger();
+
+        Replicas(Jdbi[] jdbis, ReplicaSelection selection) {
+            this.jdbis = jdbis;
+            this.selection = selection;
+            this.inFlight = new AtomicInteger[jdbis.length];
+            for (int i = 0; i < jdbis.length; i++) {
+                inFlight[i] = new AtomicInteger();
+            }
+        }
+
+        int select() {
+            // Rotating the starting point spreads ties across equally loaded replicas
+            int start = Math.floorMod(next.getAndIncrement(), jdbis.length);
+            if (selection == ReplicaSelection.ROUND_ROBIN) {
+                return start;
+            }
+            int best = start;
+            for (int i = 1; i < jdbis.length; i++) {
+                int candidate = (start + i) % jdbis.length;
+                if (inFlight[candidate].get() < inFlight[best].get()) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+    }
     /**
      * Extracts the table name from the @Table annotation.
      *
@@ -502,6 +953,7 @@ public abstract class CRUD<E, ID> {
      *   <li>Enum columns with flexible storage strategies</li>
      *   <li>Timestamp fields for audit purposes</li>
      *   <li>Default values and NOT NULL constraints</li>
+     *   <li>Full-text search columns and indexes (tsvector/GIN or FULLTEXT)</li>
      * </ul>
      *
      * <h4>Example Usage:</h4>
@@ -574,6 +1026,13 @@ public abstract class CRUD<E, ID> {
             }
         }
 
+        // Generated tsvector column for full-text search
+        Field[] fullTextFields = getFullTextFields();
+        if (fullTextFields.length > 0 && tableDialect == Dialect.POSTGRESQL) {
+            columnDefinitions.add(FULL_TEXT_VECTOR_COLUMN + " TSVECTOR GENERATED ALWAYS AS ("
+                    + buildTsVectorExpression(fullTextFields) + ") STORED");
+        }
+
         // Join column definitions
         ddl.append("    ").append(String.join(",\n    ", columnDefinitions));
 
@@ -640,6 +1099,8 @@ public abstract class CRUD<E, ID> {
         if (field.isAnnotationPresent(UUID.class)) {
             if (dialect == Dialect.POSTGRESQL) {
                 return "UUID";
+            } else if (field.getAnnotation(UUID.class).storage() != UUID.Storage.STRING) {
+                return "BINARY(16)";
             } else {
                 return "VARCHAR(36)";
             }
@@ -654,8 +1115,11 @@ public abstract class CRUD<E, ID> {
             }
         }
 
-        // Array fields (stored as delimited text)
+        // Array fields (native PostgreSQL arrays or delimited text)
         if (field.isAnnotationPresent(ArrayColumn.class)) {
+            if (isNativeArray(field, dialect)) {
+                return SqlBuilder.arrayElementType(getArrayElementType(field)).toUpperCase() + "[]";
+            }
             return "TEXT";
         }
 
@@ -791,9 +1255,17 @@ public abstract class CRUD<E, ID> {
             comment.append("JSON data structure");
         } else if (field.isAnnotationPresent(ArrayColumn.class)) {
             ArrayColumn arrayAnnotation = field.getAnnotation(ArrayColumn.class);
+            if (arrayAnnotation.storage() == ArrayColumn.Storage.NATIVE) {
+                comment.append("Array stored as native array");
+                return comment.toString();
+            }
             comment.append("Array stored as delimited text (separator: '").append(arrayAnnotation.separator()).append("')");
         } else if (field.isAnnotationPresent(UUID.class)) {
             comment.append("UUID identifier");
+            UUID.Storage storage = field.getAnnotation(UUID.class).storage();
+            if (storage != UUID.Storage.STRING) {
+                comment.append(" (").append(storage.name().toLowerCase()).append(")");
+            }
         } else if (field.isAnnotationPresent(FileColumn.class)) {
             comment.append("File binary data");
         } else if (field.isAnnotationPresent(EnumColumn.class)) {
@@ -830,16 +1302,65 @@ public abstract class CRUD<E, ID> {
                         .append(" ON ").append(tableName).append(" (").append(columnName).append(");\n");
             }
 
-            // JSON fields might need GIN indexes in PostgreSQL
-            if (field.isAnnotationPresent(JsonColumn.class) && dialect == Dialect.POSTGRESQL) {
+            // JSON fields and native arrays need GIN indexes in PostgreSQL
+            if ((field.isAnnotationPresent(JsonColumn.class) && dialect == Dialect.POSTGRESQL)
+                    || isNativeArray(field, dialect)) {
                 indexes.append("CREATE INDEX idx_").append(tableName).append("_").append(columnName)
                         .append("_gin ON ").append(tableName).append(" USING GIN (").append(columnName).append(");\n");
             }
+
+            // JSON paths queried by equality
+            if (field.isAnnotationPresent(JsonColumn.class)) {
+                for (String path : field.getAnnotation(JsonColumn.class).indexedPaths()) {
+                    String suffix = columnName + "_" + path.replace('.', '_');
+                    String expression = SqlBuilder.jsonPathText(dialect, columnName, path);
+                    if (dialect == Dialect.POSTGRESQL) {
+                        indexes.append("CREATE INDEX idx_").append(tableName).append("_").append(suffix)
+                                .append(" ON ").append(tableName).append(" (").append(expression).append(");\n");
+                    } else {
+                        indexes.append("ALTER TABLE ").append(tableName).append(" ADD COLUMN ").append(suffix)
+                                .append(" VARCHAR(255) GENERATED ALWAYS AS (").append(expression).append(") VIRTUAL;\n");
+                        indexes.append("CREATE INDEX idx_").append(tableName).append("_").append(suffix)
+                                .append(" ON ").append(tableName).append(" (").append(suffix).append(");\n");
+                    }
+                }
+            }
+        }
+
+        // Full-text index over all @FullText columns
+        Field[] fullTextFields = getFullTextFields();
+        if (fullTextFields.length > 0) {
+            if (dialect == Dialect.POSTGRESQL) {
+                indexes.append("CREATE INDEX idx_").append(tableName).append("_").append(FULL_TEXT_VECTOR_COLUMN)
+                        .append(" ON ").append(tableName).append(" USING GIN (").append(FULL_TEXT_VECTOR_COLUMN).append(");\n");
+            } else {
+                indexes.append("CREATE FULLTEXT INDEX ft_").append(tableName)
+                        .append(" ON ").append(tableName).append(" (").append(joinColumnNames(fullTextFields)).append(");\n");
+            }
         }
 
         return indexes.append("\n").toString();
     }
 
+    /**
+     * Builds the to_tsvector expression over all @FullText columns.
+     */
+    private String buildTsVectorExpression(Field[] fullTextFields) {
+        StringJoiner document = new StringJoiner(" || ' ' || ");
+        for (Field field : fullTextFields) {
+            document.add("coalesce(" + getColumnName(field) + ", '')");
+        }
+        return "to_tsvector('" + getFullTextLanguage(fullTextFields) + "', " + document + ")";
+    }
+
+    private String joinColumnNames(Field[] fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        for (Field field : fields) {
+            columns.add(getColumnName(field));
+        }
+        return columns.toString();
+    }
+
     /**
      * Generates comments explaining field mappings and annotations.
      */
@@ -862,6 +1383,7 @@ public abstract class CRUD<E, ID> {
             if (field.isAnnotationPresent(UUID.class)) annotations.add("@UUID");
             if (field.isAnnotationPresent(EnumColumn.class)) annotations.add("@EnumColumn");
             if (field.isAnnotationPresent(FileColumn.class)) annotations.add("@FileColumn");
+            if (field.isAnnotationPresent(FullText.class)) annotations.add("@FullText");
             if (field.isAnnotationPresent(CreatedDate.class)) annotations.add("@CreatedDate");
             if (field.isAnnotationPresent(UpdatedDate.class)) annotations.add("@UpdatedDate");
             if (field.isAnnotationPresent(Default.class)) annotations.add("@Default");
@@ -896,28 +1418,39 @@ public abstract class CRUD<E, ID> {
             StringJoiner placeholders = new StringJoiner(", ");
 
             for (Field field : fields) {
-                String columnName = getColumnName(field);
-                columns.add(columnName);
-                String placeholder = ":" + field.getName();
-
-                // Si el dialecto es PostgreSQL y es un JSON column, agregamos ::jsonb
-                if (dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(JsonColumn.class)) {
-                    placeholder += "::jsonb";
-                }
-                if(dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(UUID.class)) {
-                    UUID uuidAnnotation = field.getAnnotation(UUID.class);
-                    if(!uuidAnnotation.autoGenerate()){
-                        placeholder += "::uuid";
-                    }
-                }
-
-                placeholders.add(placeholder);
+                columns.add(getColumnName(field));
+                placeholders.add(buildPlaceholder(field));
             }
 
             return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ")";
         });
     }
 
+    /**
+     * Builds the named parameter for a field, with the casts PostgreSQL needs for its column type.
+     *
+     * @param field the field bound to the parameter
+     * @return the placeholder, e.g. {@code :preferences::jsonb}
+     */
+    private String buildPlaceholder(Field field) {
+        String placeholder = ":" + field.getName();
+
+        // Si el dialecto es PostgreSQL y es un JSON column, agregamos ::jsonb
+        if (dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(JsonColumn.class)) {
+            placeholder += "::jsonb";
+        }
+        if (dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(UUID.class)) {
+            UUID uuidAnnotation = field.getAnnotation(UUID.class);
+            if (!uuidAnnotation.autoGenerate()) {
+                placeholder += "::uuid";
+            }
+        }
+        if (isNativeArray(field, dialect)) {
+            placeholder += "::" + SqlBuilder.arrayElementType(getArrayElementType(field)) + "[]";
+        }
+        return placeholder;
+    }
+
     /**
      * Builds the UPDATE SQL statement for this entity.
      * <p>
@@ -934,46 +1467,101 @@ public abstract class CRUD<E, ID> {
 
             StringJoiner setClauses = new StringJoiner(", ");
 
+            Field versionField = getVersionField();
             for (Field field : fields) {
-                if (!field.equals(idField) && !field.isAnnotationPresent(CreatedDate.class)) {
+                if (field.equals(versionField)) {
                     String columnName = getColumnName(field);
-                    String placeholder = ":" + field.getName();
-
-                    if (dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(JsonColumn.class)) {
-                        placeholder += "::jsonb";
-                    }
-
-                    if (dialect == Dialect.POSTGRESQL && field.isAnnotationPresent(UUID.class)) {
-                        UUID uuidAnnotation = field.getAnnotation(UUID.class);
-                        if (!uuidAnnotation.autoGenerate()) {
-                            placeholder += "::uuid";
-                        }
-                    }
-
-                    setClauses.add(columnName + " = " + placeholder);
+                    setClauses.add(columnName + " = " + columnName + " + 1");
+                } else if (!field.equals(idField) && !field.isAnnotationPresent(CreatedDate.class)) {
+                    setClauses.add(getColumnName(field) + " = " + buildPlaceholder(field));
                 }
             }
 
-            return "UPDATE " + tableName + " SET " + setClauses + " WHERE " + getIdColumnName() + " = :" + idField.getName();
+            String where = getIdColumnName() + " = :" + idField.getName();
+            if (versionField != null) {
+                where += " AND " + getColumnName(versionField) + " = :" + versionField.getName();
+            }
+            return "UPDATE " + tableName + " SET " + setClauses + " WHERE " + where;
         });
     }
 
-    // ================================
-    // AUTOMATIC PARAMETER BINDING WITH TRANSFORMATIONS
-    // ================================
-
     /**
-     * Binds parameters for INSERT operations with automatic transformations.
+     * Builds the INSERT-or-UPDATE SQL statement for this entity, keyed on the primary key.
      * <p>
-     * Processes the entity by generating UUIDs, setting defaults, and timestamps
-     * before binding parameters to the statement.
+     * All columns, including the ID, are inserted; on a key conflict every column except the ID
+     * and {@code @CreatedDate} fields is overwritten, and a {@code @Version} column is incremented.<br>
+     * PostgreSQL: {@code INSERT ... ON CONFLICT (id) DO UPDATE SET col = EXCLUDED.col}<br>
+     * MySQL: {@code INSERT ... ON DUPLICATE KEY UPDATE col = VALUES(col)}
      * </p>
+     * The SQL is cached per entity class. Bind it with {@link #bindUpsertParameters(PreparedBatch, Object)}.
      *
-     * @param update the JDBI Update statement
-     * @param entity the entity to bind
+     * @return the upsert SQL statement
      */
-    public void bindInsertParameters(Update update, E entity) {
-        processEntityForInsert(entity);
+    public String buildUpsertSql() {
+        return upsertSqlCache.computeIfAbsent(entityClass, clazz -> {
+            Field idField = getIdField();
+            Field versionField = getVersionField();
+            String idColumn = getIdColumnName();
+            StringJoiner columns = new StringJoiner(", ");
+            StringJoiner placeholders = new StringJoiner(", ");
+            StringJoiner assignments = new StringJoiner(", ");
+
+            for (Field field : getUpdatableFields()) {
+                String columnName = getColumnName(field);
+                columns.add(columnName);
+                placeholders.add(buildPlaceholder(field));
+                if (field.equals(versionField)) {
+                    // The existing row keeps counting versions instead of taking the entity's value
+                    assignments.add(dialect == Dialect.POSTGRESQL
+                            ? columnName + " = " + tableName + "." + columnName + " + 1"
+                            : columnName + " = " + columnName + " + 1");
+                } else if (!field.equals(idField) && !field.isAnnotationPresent(CreatedDate.class)) {
+                    assignments.add(dialect == Dialect.POSTGRESQL
+                            ? columnName + " = EXCLUDED." + columnName
+                            : columnName + " = VALUES(" + columnName + ")");
+                }
+            }
+
+            String insert = "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ")";
+            if (dialect == Dialect.POSTGRESQL) {
+                return insert + " ON CONFLICT (" + idColumn + ") "
+                        + (assignments.length() == 0 ? "DO NOTHING" : "DO UPDATE SET " + assignments);
+            }
+            return insert + " ON DUPLICATE KEY UPDATE "
+                    + (assignments.length() == 0 ? idColumn + " = " + idColumn : assignments.toString());
+        });
+    }
+
+    /**
+     * Builds the SELECT-by-primary-key SQL statement used by {@link #findById(Object)}.
+     * <p>
+     * The SQL is cached per entity class so that every call sends the same text, which lets
+     * driver-side prepared-statement caches reuse it.
+     * </p>
+     *
+     * @return the SELECT SQL statement with a single {@code :id} parameter
+     */
+    public String buildFindByIdSql() {
+        return findByIdSqlCache.computeIfAbsent(entityClass, clazz ->
+                "SELECT * FROM " + tableName + " WHERE " + getIdColumnName() + " = :id");
+    }
+
+    // ================================
+    // AUTOMATIC PARAMETER BINDING WITH TRANSFORMATIONS
+    // ================================
+
+    /**
+     * Binds parameters for INSERT operations with automatic transformations.
+     * <p>
+     * Processes the entity by generating UUIDs, setting defaults, and timestamps
+     * before binding parameters to the statement.
+     * </p>
+     *
+     * @param update the JDBI Update statement
+     * @param entity the entity to bind
+     */
+    public void bindInsertParameters(Update update, E entity) {
+        processEntityForInsert(entity);
         bindParameters(update, entity, getInsertableFields());
     }
 
@@ -1002,6 +1590,43 @@ public abstract class CRUD<E, ID> {
         bindParameters(batch, entity, getInsertableFields());
     }
 
+    /**
+     * Binds parameters for the batched upsert built by {@link #buildUpsertSql()}.
+     * <p>
+     * Processes the entity like an insert (UUIDs, defaults and timestamps) and binds every
+     * non-ignored field, including the ID.
+     * </p>
+     *
+     * @param batch the JDBI PreparedBatch statement
+     * @param entity the entity to bind
+     */
+    public void bindUpsertParameters(PreparedBatch batch, E entity) {
+        processEntityForInsert(entity);
+        bindParameters(batch, entity, getUpdatableFields());
+    }
+
+    /**
+     * Processes the entity like {@link #bindUpsertParameters(PreparedBatch, Object)} and copies the
+     * transformed values it would bind, so they can be bound later with {@code bindMap} on another
+     * thread without touching the entity again.
+     *
+     * @param entity the entity to copy
+     * @return the upsert parameters by field name
+     */
+    Map<String, Object> snapshotUpsertParameters(E entity) {
+        processEntityForInsert(entity);
+        Map<String, Object> parameters = new HashMap<>();
+        for (Field field : getUpdatableFields()) {
+            try {
+                field.setAccessible(true);
+                parameters.put(field.getName(), processFieldValue(field, field.get(entity)));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Error accessing field: " + field.getName(), e);
+            }
+        }
+        return parameters;
+    }
+
     /**
      * Binds field values to statement parameters with type transformations.
      *
@@ -1049,6 +1674,19 @@ public abstract class CRUD<E, ID> {
         setDefaultValues(entity);
         setTimestamp(entity, CreatedDate.class);
         setTimestamp(entity, UpdatedDate.class);
+        initializeVersion(entity);
+    }
+
+    /**
+     * Sets a null @Version field to 0.
+     *
+     * @param entity the entity to process
+     */
+    private void initializeVersion(E entity) {
+        Field versionField = getVersionField();
+        if (versionField != null && readVersion(entity) == null) {
+            writeVersion(entity, 0L);
+        }
     }
 
     /**
@@ -1147,7 +1785,8 @@ public abstract class CRUD<E, ID> {
      * Handles the following transformations:
      * <ul>
      *   <li>@JsonColumn: Serializes objects to JSON strings</li>
-     *   <li>@ArrayColumn: Joins arrays/lists with specified separator</li>
+     *   <li>@ArrayColumn: Joins arrays/lists with specified separator, or builds a typed
+     *   Java array for native PostgreSQL arrays</li>
      *   <li>@EnumColumn: Converts enums based on storage strategy</li>
      * </ul>
      * </p>
@@ -1168,15 +1807,27 @@ public abstract class CRUD<E, ID> {
             }
         }
 
+        // UUID binary encoding (MySQL only)
+        if (field.isAnnotationPresent(UUID.class) && dialect == Dialect.MYSQL) {
+            UUID.Storage storage = field.getAnnotation(UUID.class).storage();
+            if (storage != UUID.Storage.STRING) {
+                java.util.UUID uuid = value instanceof java.util.UUID
+                        ? (java.util.UUID) value
+                        : java.util.UUID.fromString(value.toString());
+                return uuidToBytes(uuid, storage == UUID.Storage.BINARY_SWAPPED);
+            }
+        }
+
+        // Native array binding (PostgreSQL only), bound by JDBI through createArrayOf
+        if (isNativeArray(field, dialect)) {
+            return toSqlArrayValue(field, value);
+        }
+
         // Array Column joining
-        if (field.isAnnotationPresent(ArrayColumn.class)) {
+        if (field.isAnnotationPresent(ArrayColumn.class)
+                && (value instanceof Collection || value.getClass().isArray())) {
             ArrayColumn arrayAnnotation = field.getAnnotation(ArrayColumn.class);
-            if (value instanceof List) {
-                return String.join(arrayAnnotation.separator(),
-                        ((List<?>) value).stream().map(Object::toString).toArray(String[]::new));
-            } else if (value instanceof String[]) {
-                return String.join(arrayAnnotation.separator(), (String[]) value);
-            }
+            return DelimitedArrayCodec.encode(value, arrayAnnotation.separator());
         }
 
         // Enum Column transformation
@@ -1206,6 +1857,105 @@ public abstract class CRUD<E, ID> {
         return value;
     }
 
+    /**
+     * Converts a List or array field value into a typed Java array for SQL array binding.
+     * <p>
+     * Enums are stored by name. The resulting array component type matches
+     * {@link SqlBuilder#arrayElementType(Class)}, so JDBI can resolve the SQL array type.
+     * </p>
+     *
+     * @param field the @ArrayColumn field
+     * @param value the List or array value
+     * @return a typed array (String[], Long[], Integer[] or java.util.UUID[])
+     */
+    private static Object[] toSqlArrayValue(Field field, Object value) {
+        Class<?> elementType = getArrayElementType(field);
+        Class<?> bindType = "text".equals(SqlBuilder.arrayElementType(elementType)) ? String.class : boxed(elementType);
+        int size = value instanceof Collection ? ((Collection<?>) value).size() : java.lang.reflect.Array.getLength(value);
+        Object[] array = (Object[]) java.lang.reflect.Array.newInstance(bindType, size);
+        if (value instanceof Collection) {
+            int i = 0;
+            for (Object element : (Collection<?>) value) {
+                array[i++] = toSqlArrayElement(element, bindType);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                array[i] = toSqlArrayElement(java.lang.reflect.Array.get(value, i), bindType);
+            }
+        }
+        return array;
+    }
+
+    private static Object toSqlArrayElement(Object element, Class<?> bindType) {
+        if (element == null) return null;
+        if (element instanceof Enum) return ((Enum<?>) element).name();
+        if (bindType == String.class) return element.toString();
+        return element;
+    }
+
+    /**
+     * Encodes a UUID into 16 big-endian bytes.
+     * <p>
+     * When {@code swapTimeFields} is true the layout matches MySQL's
+     * {@code UUID_TO_BIN(uuid, 1)}: time-high, time-mid, time-low, then the rest.
+     * </p>
+     *
+     * @param uuid the UUID to encode
+     * @param swapTimeFields whether to move the time-high field first
+     * @return the 16-byte representation
+     */
+    static byte[] uuidToBytes(java.util.UUID uuid, boolean swapTimeFields) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (swapTimeFields) {
+            msb = (msb << 48) | ((msb & 0x00000000FFFF0000L) << 16) | (msb >>> 32);
+        }
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes 16 bytes produced by {@link #uuidToBytes(java.util.UUID, boolean)}.
+     *
+     * @param bytes the stored bytes
+     * @param swapTimeFields whether the bytes use the swapped time layout
+     * @return the decoded UUID
+     * @throws IllegalArgumentException if the value is not exactly 16 bytes
+     */
+    static java.util.UUID bytesToUuid(byte[] bytes, boolean swapTimeFields) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Binary UUID must be 16 bytes, got " + bytes.length);
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[8 + i] & 0xFF);
+        }
+        if (swapTimeFields) {
+            msb = (msb << 32) | ((msb >>> 16) & 0x00000000FFFF0000L) | (msb >>> 48);
+        }
+        return new java.util.UUID(msb, lsb);
+    }
+
+    /**
+     * Converts an ID value to the form stored in the database.
+     * <p>
+     * Applies the same transformations as entity binding, so a binary-stored
+     * UUID primary key is matched by its 16-byte value.
+     * </p>
+     *
+     * @param id the primary key value
+     * @return the value to bind
+     */
+    private Object toDatabaseId(ID id) {
+        return processFieldValue(getIdField(), id);
+    }
+
     // ================================
     // REFLECTION UTILITIES WITH CACHING
     // ================================
@@ -1256,6 +2006,28 @@ public abstract class CRUD<E, ID> {
         return entityClass.getDeclaredFields();
     }
 
+    /**
+     * Gets the @FullText annotated fields. Results are cached for performance.
+     *
+     * @return array of full-text fields, empty if none
+     */
+    private Field[] getFullTextFields() {
+        return fullTextFieldsCache.computeIfAbsent(entityClass, clazz ->
+                Arrays.stream(clazz.getDeclaredFields())
+                        .filter(field -> field.isAnnotationPresent(FullText.class))
+                        .filter(field -> !field.isAnnotationPresent(Ignore.class))
+                        .toArray(Field[]::new)
+        );
+    }
+
+    private static String getFullTextLanguage(Field[] fullTextFields) {
+        String language = fullTextFields[0].getAnnotation(FullText.class).language();
+        if (!language.matches("[A-Za-z_]+")) {
+            throw new IllegalArgumentException("Invalid text search configuration: " + language);
+        }
+        return language;
+    }
+
     /**
      * Gets the @Id annotated field from the entity class.
      * <p>
@@ -1265,7 +2037,7 @@ public abstract class CRUD<E, ID> {
      * @return the ID field
      * @throws RuntimeException if no @Id field is found
      */
-    private Field getIdField() {
+    Field getIdField() {
         return idFieldCache.computeIfAbsent(entityClass, clazz ->
                 Arrays.stream(clazz.getDeclaredFields())
                         .filter(field -> field.isAnnotationPresent(Id.class))
@@ -1274,6 +2046,69 @@ public abstract class CRUD<E, ID> {
         );
     }
 
+    /**
+     * Gets the @Version field, if the entity has one. Results are cached for performance.
+     *
+     * @return the version field, or null if the entity is not versioned
+     * @throws IllegalArgumentException if the field is not an int, Integer, long or Long
+     */
+    private Field getVersionField() {
+        return versionFieldCache.computeIfAbsent(entityClass, clazz -> {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(Version.class)) {
+                    continue;
+                }
+                Class<?> type = boxed(field.getType());
+                if (type != Integer.class && type != Long.class) {
+                    throw new IllegalArgumentException("@Version field " + field.getName()
+                            + " of " + clazz.getName() + " must be int, Integer, long or Long");
+                }
+                return Optional.of(field);
+            }
+            return Optional.empty();
+        }).orElse(null);
+    }
+
+    private Number readVersion(E entity) {
+        Field versionField = getVersionField();
+        try {
+            versionField.setAccessible(true);
+            return (Number) versionField.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Error accessing version field", e);
+        }
+    }
+
+    private void writeVersion(E entity, long version) {
+        Field versionField = getVersionField();
+        try {
+            versionField.setAccessible(true);
+            if (boxed(versionField.getType()) == Integer.class) {
+                versionField.set(entity, (int) version);
+            } else {
+                versionField.set(entity, version);
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Error setting version field", e);
+        }
+    }
+
+    /**
+     * Reads the primary key value of an entity.
+     *
+     * @param entity the entity
+     * @return the value of its @Id field, possibly null
+     */
+    Object getIdValue(E entity) {
+        Field idField = getIdField();
+        try {
+            idField.setAccessible(true);
+            return idField.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Error accessing ID field", e);
+        }
+    }
+
     /**
      * Gets the database column name for a field.
      * <p>
@@ -1287,6 +2122,22 @@ public abstract class CRUD<E, ID> {
         Column column = field.getAnnotation(Column.class);
         return column != null && !column.value().isEmpty() ? column.value() : field.getName();
     }
+
+    /**
+     * Gets a mapped entity field by its Java name.
+     *
+     * @param fieldName the Java field name
+     * @return the field
+     * @throws IllegalArgumentException if the entity has no such mapped field
+     */
+    private Field getFieldByName(String fieldName) {
+        for (Field field : getUpdatableFields()) {
+            if (field.getName().equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("No mapped field '" + fieldName + "' in " + entityClass.getName());
+    }
     // ================================
 
     // Provider EXTENSIONS
@@ -1315,7 +2166,7 @@ public abstract class CRUD<E, ID> {
      * @return the total record count
      */
     public long count() {
-        return getConfiguredJdbi().withHandle(handle ->
+        return withReadHandle(handle ->
                 handle.createQuery("SELECT COUNT(*) FROM " + tableName)
                         .mapTo(Long.class)
                         .one()
@@ -1328,7 +2179,7 @@ public abstract class CRUD<E, ID> {
      * @return list of all entities
      */
     public List<E> findAll() {
-        return getConfiguredJdbi().withHandle(handle ->
+        return withReadHandle(handle ->
                 handle.createQuery("SELECT * FROM " + tableName)
                         .map(getRowMapper())
                         .list()
@@ -1343,7 +2194,7 @@ public abstract class CRUD<E, ID> {
      * @return list of entities within the specified range
      */
     public List<E> findAll(int limit, int offset) {
-        return getConfiguredJdbi().withHandle(handle ->
+        return withReadHandle(handle ->
                 handle.createQuery("SELECT * FROM " + tableName + " LIMIT :limit OFFSET :offset")
                         .bind("limit", limit)
                         .bind("offset", offset)
@@ -1359,9 +2210,9 @@ public abstract class CRUD<E, ID> {
      * @return Optional containing the entity if found, empty otherwise
      */
     public Optional<E> findById(ID id) {
-        return getConfiguredJdbi().withHandle(handle ->
-                handle.createQuery("SELECT * FROM " + tableName + " WHERE " + getIdColumnName() + " = :id")
-                        .bind("id", id)
+        return withReadHandle(handle ->
+                handle.createQuery(buildFindByIdSql())
+                        .bind("id", toDatabaseId(id))
                         .map(getRowMapper())
                         .findOne()
         );
@@ -1374,10 +2225,10 @@ public abstract class CRUD<E, ID> {
      * @return true if entity exists, false otherwise
      */
     public boolean existsById(ID id) {
-        return getConfiguredJdbi().withHandle(handle -> {
+        return withReadHandle(handle -> {
                     String sql = "SELECT 1 FROM " + tableName + " WHERE " + getIdColumnName() + " = :id LIMIT 1";
                    return  handle.createQuery(sql)
-                            .bind("id", id)
+                            .bind("id", toDatabaseId(id))
                             .mapTo(Integer.class)
                             .findOne()
                             .isPresent();
@@ -1385,6 +2236,266 @@ public abstract class CRUD<E, ID> {
         );
     }
 
+    /**
+     * Finds entities whose native array column contains all of the given values.
+     * <p>
+     * Uses the PostgreSQL {@code @>} operator, which is served by the GIN index
+     * suggested in {@link #getTableCreationTemplate()}.
+     * </p>
+     *
+     * <pre>{@code
+     * // All rows tagged with both "urgent" and "review"
+     * List<Task> tasks = crud.findAllContaining("tags", List.of("urgent", "review"));
+     * }</pre>
+     *
+     * @param fieldName the Java name of an @ArrayColumn(storage = NATIVE) field
+     * @param values the values that must all be present
+     * @return list of matching entities
+     * @throws IllegalArgumentException if the field is not a native array on PostgreSQL
+     */
+    public List<E> findAllContaining(String fieldName, Collection<?> values) {
+        return findAllByArrayOperator(fieldName, values, true);
+    }
+
+    /**
+     * Finds entities whose native array column shares at least one value with the given values.
+     * <p>
+     * Uses the PostgreSQL {@code &&} operator, which is served by the GIN index
+     * suggested in {@link #getTableCreationTemplate()}.
+     * </p>
+     *
+     * @param fieldName the Java name of an @ArrayColumn(storage = NATIVE) field
+     * @param values the candidate values
+     * @return list of matching entities
+     * @throws IllegalArgumentException if the field is not a native array on PostgreSQL
+     */
+    public List<E> findAllOverlapping(String fieldName, Collection<?> values) {
+        return findAllByArrayOperator(fieldName, values, false);
+    }
+
+    private List<E> findAllByArrayOperator(String fieldName, Collection<?> values, boolean containsAll) {
+        Field field = getFieldByName(fieldName);
+        if (!isNativeArray(field, dialect)) {
+            throw new IllegalArgumentException(
+                    "Field " + fieldName + " must be @ArrayColumn(storage = NATIVE) on a PostgreSQL table");
+        }
+        Object[] array = toSqlArrayValue(field, values);
+        SqlBuilder query = SqlBuilder.select().from(tableName);
+        if (containsAll) {
+            query.whereArrayContains(getColumnName(field), "values", array);
+        } else {
+            query.whereArrayOverlaps(getColumnName(field), "values", array);
+        }
+        return findAll(query);
+    }
+
+    /**
+     * Finds entities whose JSON column contains the given fragment.
+     * <p>
+     * Rendered as {@code column @> CAST(:fragment AS jsonb)} on PostgreSQL, which uses the
+     * GIN index suggested by {@link #getTableCreationTemplate()}, and as
+     * {@code JSON_CONTAINS(column, ...)} on MySQL.
+     * </p>
+     *
+     * <pre>{@code
+     * List<User> darkTheme = crud.findAllByJsonContains("preferences", Map.of("theme", "dark"));
+     * }</pre>
+     *
+     * @param fieldName the Java name of a @JsonColumn field
+     * @param fragment a JSON string, or an object serialized with Jackson
+     * @return list of matching entities
+     * @throws IllegalArgumentException if the field is not a @JsonColumn
+     */
+    public List<E> findAllByJsonContains(String fieldName, Object fragment) {
+        Field field = getJsonField(fieldName);
+        return findAll(SqlBuilder.select().from(tableName).dialect(dialect)
+                .whereJsonContains(getColumnName(field), "fragment", fragment));
+    }
+
+    /**
+     * Finds entities where the text value at a JSON path equals the given value.
+     * <p>
+     * Declare the path in {@link JsonColumn#indexedPaths()} to get a matching index
+     * suggestion from {@link #getTableCreationTemplate()}.
+     * </p>
+     *
+     * <pre>{@code
+     * List<User> english = crud.findAllByJsonPath("preferences", "settings.lang", "en");
+     * }</pre>
+     *
+     * @param fieldName the Java name of a @JsonColumn field
+     * @param path dotted path, e.g. {@code "settings.lang"}
+     * @param value the expected value, compared as text
+     * @return list of matching entities
+     * @throws IllegalArgumentException if the field is not a @JsonColumn or the path is invalid
+     */
+    public List<E> findAllByJsonPath(String fieldName, String path, Object value) {
+        Field field = getJsonField(fieldName);
+        return findAll(SqlBuilder.select().from(tableName).dialect(dialect)
+                .whereJsonPathEquals(getColumnName(field), path, "pathValue", value));
+    }
+
+    private Field getJsonField(String fieldName) {
+        Field field = getFieldByName(fieldName);
+        if (!field.isAnnotationPresent(JsonColumn.class)) {
+            throw new IllegalArgumentException("Field " + fieldName + " must be annotated with @JsonColumn");
+        }
+        return field;
+    }
+
+    /**
+     * Runs a query built with {@link SqlBuilder} and maps the rows to entities.
+     *
+     * @param query the query, selecting columns of this entity's table
+     * @return list of mapped entities
+     */
+    public List<E> findAll(SqlBuilder query) {
+        return withReadHandle(handle ->
+                handle.createQuery(query.build())
+                        .bindMap(query.getParameters())
+                        .map(getRowMapper())
+                        .list()
+        );
+    }
+
+    /**
+     * Default number of rows fetched per round trip by {@link #publish(SqlBuilder)}.
+     */
+    public static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Streams every row of the table as a {@link Flow.Publisher}.
+     *
+     * @return a cold publisher; each subscription runs its own query
+     * @see #publish(SqlBuilder, int)
+     */
+    public Flow.Publisher<E> publishAll() {
+        return publish(SqlBuilder.select().from(tableName).dialect(dialect));
+    }
+
+    /**
+     * Streams the rows of a {@link SqlBuilder} query with {@link #DEFAULT_STREAM_FETCH_SIZE}.
+     *
+     * @param query the query, selecting columns of this entity's table
+     * @return a cold publisher; each subscription runs its own query
+     * @see #publish(SqlBuilder, int)
+     */
+    public Flow.Publisher<E> publish(SqlBuilder query) {
+        return publish(query, DEFAULT_STREAM_FETCH_SIZE);
+    }
+
+    /**
+     * Streams the rows of a {@link SqlBuilder} query as a {@link Flow.Publisher} with backpressure.
+     * <p>
+     * Unlike {@link #findAll(SqlBuilder)}, rows are not collected into a list: each subscription opens
+     * a connection on its first {@code request(n)}, reads from a server-side cursor and maps rows with
+     * {@link #getRowMapper()} only as downstream demand arrives. Completion, an error or
+     * {@code cancel()} closes the statement and returns the connection. The query follows the
+     * read routing of this repository (see {@link #useReplicas(List, ReplicaSelection)}), resolved when
+     * {@code subscribe} is called: the tenant, {@link #onPrimary(Supplier)} and the read-your-writes
+     * window of the subscribing thread apply, although rows are emitted on virtual threads.
+     * </p>
+     * <p>
+     * <strong>PostgreSQL:</strong> the cursor runs inside a read-only transaction that is rolled back
+     * at the end, since the driver only honors the fetch size with auto-commit off.<br>
+     * <strong>MySQL:</strong> rows are streamed one by one by Connector/J; the connection cannot run
+     * other statements until the subscription ends, so {@code fetchSize} is not used.
+     * </p>
+     *
+     * <pre>{@code
+     * crud.publish(SqlBuilder.select().from(crud.getTableName()).where("status = :s").param("s", "ACTIVE"))
+     *     .subscribe(new Flow.Subscriber<>() {
+     *         Flow.Subscription subscription;
+     *         public void onSubscribe(Flow.Subscription s) { subscription = s; s.request(100); }
+     *         public void onNext(User user) { export(user); subscription.request(1); }
+     *         public void onError(Throwable error) { log(error); }
+     *         public void onComplete() { done(); }
+     *     });
+     * }</pre>
+     *
+     * @param query the query, selecting columns of this entity's table
+     * @param fetchSize rows fetched per round trip on PostgreSQL
+     * @return a cold publisher; each subscription runs its own query
+     * @throws IllegalArgumentException if fetchSize is less than 1
+     */
+    public Flow.Publisher<E> publish(SqlBuilder query, int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be at least 1");
+        }
+        return new QueryPublisher<>(() -> {
+            // Resolved on the subscribing thread: the rows are emitted on a virtual thread without its tenant
+            Supplier<Handle> opener = readHandleOpener();
+            return () -> {
+                Handle handle = opener.get();
+                if (dialect == Dialect.POSTGRESQL) {
+                    handle.begin();
+                    handle.execute("SET TRANSACTION READ ONLY");
+                }
+                return handle;
+            };
+        }, handle -> handle.createQuery(query.build())
+                .bindMap(query.getParameters())
+                .setFetchSize(dialect == Dialect.MYSQL ? Integer.MIN_VALUE : fetchSize)
+                .map(getRowMapper())
+                .iterator(), AsyncCRUD.VIRTUAL_THREADS);
+    }
+
+    /**
+     * Builds the full-text search predicate for this entity's @FullText columns.
+     * <p>
+     * PostgreSQL: {@code search_vector @@ plainto_tsquery('english', :param)}<br>
+     * MySQL: {@code MATCH(col1, col2) AGAINST(:param IN NATURAL LANGUAGE MODE)}
+     * </p>
+     * Both forms are served by the index emitted by {@link #getTableCreationTemplate()}.
+     * Combine it with {@link SqlBuilder} to add further conditions:
+     *
+     * <pre>{@code
+     * SqlBuilder query = SqlBuilder.select().from(crud.getTableName())
+     *         .where(crud.getFullTextPredicate("q"))
+     *         .and("status = :status")
+     *         .param("q", "index tuning")
+     *         .param("status", "PUBLISHED");
+     * List<Article> articles = crud.findAll(query);
+     * }</pre>
+     *
+     * @param paramName the name of the bound search terms parameter
+     * @return the SQL predicate
+     * @throws IllegalStateException if the entity has no @FullText fields
+     */
+    public String getFullTextPredicate(String paramName) {
+        Field[] fullTextFields = getFullTextFields();
+        if (fullTextFields.length == 0) {
+            throw new IllegalStateException("Entity " + entityClass.getName() + " has no @FullText fields");
+        }
+        if (dialect == Dialect.POSTGRESQL) {
+            return FULL_TEXT_VECTOR_COLUMN + " @@ plainto_tsquery('" + getFullTextLanguage(fullTextFields) + "', :" + paramName + ")";
+        }
+        return "MATCH(" + joinColumnNames(fullTextFields) + ") AGAINST(:" + paramName + " IN NATURAL LANGUAGE MODE)";
+    }
+
+    /**
+     * Full-text search over the @FullText fields, best matches first.
+     * <p>
+     * Ranked by {@code ts_rank} on PostgreSQL and by the MATCH relevance score on MySQL.
+     * </p>
+     *
+     * @param terms plain search terms as typed by a user
+     * @param limit the maximum number of results
+     * @return matching entities ordered by relevance
+     * @throws IllegalStateException if the entity has no @FullText fields
+     */
+    public List<E> search(String terms, int limit) {
+        String predicate = getFullTextPredicate("terms");
+        String rank = dialect == Dialect.POSTGRESQL
+                ? "ts_rank(" + FULL_TEXT_VECTOR_COLUMN + ", plainto_tsquery('" + getFullTextLanguage(getFullTextFields()) + "', :terms))"
+                : predicate;
+        return findAll(SqlBuilder.select().from(tableName)
+                .where(predicate)
+                .orderByDesc(rank)
+                .limit(limit)
+                .param("terms", terms));
+    }
+
     /**
      * Saves an entity to the database.
      * <p>
@@ -1397,28 +2508,35 @@ public abstract class CRUD<E, ID> {
      * @return the primary key of the saved entity
      */
     public ID save(E entity) {
-        return getConfiguredJdbi().inTransaction(handle -> {
-            String sql = buildInsertSql();
-            Update update = handle.createUpdate(sql);
-            bindInsertParameters(update, entity);
+        GroupCommitter committer = groupCommitter;
+        ID id = committer == null
+                ? getConfiguredJdbi().inTransaction(handle -> saveInHandle(handle, entity))
+                : awaitGroupCommit(committer.submit(getConfiguredJdbi(), handle -> saveInHandle(handle, entity)));
+        markWrite();
+        return id;
+    }
 
-            Field idField = getIdField();
-            Id idAnnotation = idField.getAnnotation(Id.class);
+    private ID saveInHandle(Handle handle, E entity) {
+        String sql = buildInsertSql();
+        Update update = handle.createUpdate(sql);
+        bindInsertParameters(update, entity);
 
-            if (idAnnotation.autoGenerated()) {
-                return update.executeAndReturnGeneratedKeys(getIdColumnName())
-                        .mapTo(getIdType())
-                        .one();
-            } else {
-                update.execute();
-                try {
-                    idField.setAccessible(true);
-                    return getIdType().cast(idField.get(entity));
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException("Error accessing ID field", e);
-                }
+        Field idField = getIdField();
+        Id idAnnotation = idField.getAnnotation(Id.class);
+
+        if (idAnnotation.autoGenerated()) {
+            return update.executeAndReturnGeneratedKeys(getIdColumnName())
+                    .mapTo(getIdType())
+                    .one();
+        } else {
+            update.execute();
+            try {
+                idField.setAccessible(true);
+                return getIdType().cast(idField.get(entity));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Error accessing ID field", e);
             }
-        });
+        }
     }
 
     /**
@@ -1444,25 +2562,113 @@ public abstract class CRUD<E, ID> {
             }
             return null;
         });
+        markWrite();
     }
 
     /**
      * Updates an existing entity in the database.
      * <p>
      * The entity must have a valid ID. UpdatedDate fields are automatically
-     * updated to the current timestamp.
+     * updated to the current timestamp. If the entity has a {@link Version} field, the row is
+     * only updated if its version still matches, and the entity's version is incremented.
      * </p>
      *
      * @param entity the entity to update
      * @return true if the entity was updated, false if no matching record was found
+     * @throws OptimisticLockException if the row exists but its version changed since it was read
      */
     public boolean update(E entity) {
-        return getConfiguredJdbi().inTransaction(handle -> {
-            String sql = buildUpdateSql();
-            Update update = handle.createUpdate(sql);
-            bindUpdateParameters(update, entity);
-            return update.execute() > 0;
+        GroupCommitter committer = groupCommitter;
+        boolean updated = committer == null
+                ? getConfiguredJdbi().inTransaction(handle -> updateInHandle(handle, entity))
+                : awaitGroupCommit(committer.submit(getConfiguredJdbi(), handle -> updateInHandle(handle, entity)));
+        if (updated) {
+            incrementVersion(entity);
+        }
+        markWrite();
+        return updated;
+    }
+
+    private boolean updateInHandle(Handle handle, E entity) {
+        String sql = buildUpdateSql();
+        Update update = handle.createUpdate(sql);
+        bindUpdateParameters(update, entity);
+        int rows = update.execute();
+        if (rows == 0) {
+            checkVersionConflict(handle, entity);
+        }
+        return rows > 0;
+    }
+
+    /**
+     * Updates several entities in one JDBC batch and one transaction.
+     * <p>
+     * Behaves like {@link #update(Object)} for each entity, including the {@link Version} check:
+     * if any versioned row was modified concurrently, the whole batch is rolled back and no
+     * entity's version is changed. Rows that no longer exist are skipped.
+     * </p>
+     * <p>
+     * <strong>MySQL:</strong> with {@code rewriteBatchedStatements=true} the driver may not report
+     * per-row counts; such rows are treated as updated, so keep it off for versioned entities.
+     * </p>
+     *
+     * @param entities the entities to update
+     * @return the number of rows updated
+     * @throws OptimisticLockException for the first versioned row that was modified concurrently
+     */
+    public int updateAll(List<E> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+        int[] counts = getConfiguredJdbi().inTransaction(handle -> {
+            PreparedBatch batch = handle.prepareBatch(buildUpdateSql());
+            for (E entity : entities) {
+                processEntityForUpdate(entity);
+                bindParameters(batch, entity, getAllFields());
+                batch.add();
+            }
+            int[] rows = batch.execute();
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] == 0) {
+                    checkVersionConflict(handle, entities.get(i));
+                }
+            }
+            return rows;
         });
+        int updated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                incrementVersion(entities.get(i));
+                updated++;
+            }
+        }
+        markWrite();
+        return updated;
+    }
+
+    /**
+     * Called when an update matched no row: throws if the row exists, meaning its version changed.
+     */
+    private void checkVersionConflict(Handle handle, E entity) {
+        if (getVersionField() == null) {
+            return;
+        }
+        Object id = getIdValue(entity);
+        boolean exists = handle.createQuery("SELECT 1 FROM " + tableName + " WHERE " + getIdColumnName() + " = :id")
+                .bind("id", processFieldValue(getIdField(), id))
+                .mapTo(Integer.class)
+                .findOne()
+                .isPresent();
+        if (exists) {
+            throw new OptimisticLockException(tableName, id, readVersion(entity));
+        }
+    }
+
+    private void incrementVersion(E entity) {
+        if (getVersionField() != null) {
+            Number version = readVersion(entity);
+            writeVersion(entity, version == null ? 1 : version.longValue() + 1);
+        }
     }
 
     /**
@@ -1472,13 +2678,15 @@ public abstract class CRUD<E, ID> {
      * @return true if the entity was deleted, false if no matching record was found
      */
     public boolean deleteById(ID id) {
-        return getConfiguredJdbi().inTransaction(handle ->{
+        boolean deleted = getConfiguredJdbi().inTransaction(handle ->{
                     String sql = "DELETE FROM " + tableName + " WHERE " + getIdColumnName() + " = :id";
                     return handle.createUpdate(sql)
-                            .bind("id", id)
+                            .bind("id", toDatabaseId(id))
                             .execute() > 0;
                 }
         );
+        markWrite();
+        return deleted;
     }
 
     /**
@@ -1490,15 +2698,229 @@ public abstract class CRUD<E, ID> {
      * @return the number of deleted records
      */
     public int deleteAll() {
-        return getConfiguredJdbi().inTransaction(handle ->{
+        int deleted = getConfiguredJdbi().inTransaction(handle ->{
                     String sql = "DELETE FROM " + tableName;
                     return  handle.createUpdate(sql)
                             .execute();
                 }
         );
+        markWrite();
+        return deleted;
 
     }
 
+    // ================================
+    // ATOMIC UPDATES
+    // ================================
+
+    /**
+     * Atomically adds {@code delta} to a numeric column of one row.
+     * <p>
+     * Runs {@code UPDATE table SET col = col + :delta WHERE id = :id} in the database, so concurrent
+     * increments never lose updates and no read is needed first. {@code @UpdatedDate} fields are
+     * refreshed; no other column is written.
+     * </p>
+     *
+     * <pre>{@code
+     * crud.increment(articleId, "views", 1);
+     * crud.decrement(productId, "stock", quantity);
+     * }</pre>
+     *
+     * @param id the primary key of the row
+     * @param fieldName the Java name of a numeric field
+     * @param delta the amount to add
+     * @return true if the row exists and was updated
+     * @throws IllegalArgumentException if the field is unknown, the ID, or not numeric
+     */
+    public boolean increment(ID id, String fieldName, Number delta) {
+        return applyDeltas(Map.of(id, delta), fieldName, "+") > 0;
+    }
+
+    /**
+     * Atomically subtracts {@code delta} from a numeric column of one row.
+     *
+     * @param id the primary key of the row
+     * @param fieldName the Java name of a numeric field
+     * @param delta the amount to subtract
+     * @return true if the row exists and was updated
+     * @see #increment(Object, String, Number)
+     */
+    public boolean decrement(ID id, String fieldName, Number delta) {
+        return applyDeltas(Map.of(id, delta), fieldName, "-") > 0;
+    }
+
+    /**
+     * Atomically adds the same {@code delta} to a numeric column of many rows, in one JDBC batch
+     * and one transaction.
+     *
+     * @param ids the primary keys of the rows
+     * @param fieldName the Java name of a numeric field
+     * @param delta the amount to add to each row
+     * @return the number of rows updated
+     */
+    public int incrementAll(Collection<ID> ids, String fieldName, Number delta) {
+        Map<ID, Number> deltas = new LinkedHashMap<>();
+        for (ID id : ids) {
+            deltas.put(id, delta);
+        }
+        return applyDeltas(deltas, fieldName, "+");
+    }
+
+    /**
+     * Atomically adds a per-row delta to a numeric column, in one JDBC batch and one transaction.
+     *
+     * <pre>{@code
+     * crud.incrementAll(Map.of(1L, 3, 2L, -1), "stock");
+     * }</pre>
+     *
+     * @param deltas the amount to add, by primary key
+     * @param fieldName the Java name of a numeric field
+     * @return the number of rows updated
+     */
+    public int incrementAll(Map<ID, ? extends Number> deltas, String fieldName) {
+        return applyDeltas(deltas, fieldName, "+");
+    }
+
+    private int applyDeltas(Map<ID, ? extends Number> deltas, String fieldName, String operator) {
+        Field field = getFieldByName(fieldName);
+        if (field.equals(getIdField()) || field.equals(getVersionField())) {
+            throw new IllegalArgumentException("The @Id and @Version fields cannot be incremented");
+        }
+        if (!Number.class.isAssignableFrom(boxed(field.getType()))) {
+            throw new IllegalArgumentException("Field " + fieldName + " is not numeric");
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        String column = getColumnName(field);
+        SqlBuilder.UpdateBuilder update = SqlBuilder.UpdateBuilder.update(tableName)
+                .setExpression(column, column + " " + operator + " :delta");
+        return executeById(update, deltas);
+    }
+
+    /**
+     * Updates only the given fields of one row, without reading or rewriting the rest of it.
+     * <p>
+     * Keys are Java field names; values get the same transformations as on save (JSON, arrays,
+     * enums, UUIDs). {@code @UpdatedDate} fields not listed are refreshed. The statement is built
+     * with {@link SqlBuilder.UpdateBuilder}.
+     * </p>
+     *
+     * <pre>{@code
+     * crud.patch(userId, Map.of("status", Status.INACTIVE, "preferences", newPreferences));
+     * }</pre>
+     *
+     * @param id the primary key of the row
+     * @param values the new values by field name
+     * @return true if the row exists and was updated
+     * @throws IllegalArgumentException if values is empty or names an unknown field, the ID or the {@link Version}
+     */
+    public boolean patch(ID id, Map<String, ?> values) {
+        return patchAll(List.of(id), values) > 0;
+    }
+
+    /**
+     * Applies the same field values to many rows, in one JDBC batch and one transaction.
+     *
+     * @param ids the primary keys of the rows
+     * @param values the new values by field name
+     * @return the number of rows updated
+     * @see #patch(Object, Map)
+     */
+    public int patchAll(Collection<ID> ids, Map<String, ?> values) {
+        Map<ID, Object> rows = new LinkedHashMap<>();
+        for (ID id : ids) {
+            rows.put(id, null);
+        }
+        return executeById(buildPatch(values), rows);
+    }
+
+    /**
+     * Builds the SET clause of a patch; the ID condition is added by {@link #buildByIdUpdate}.
+     */
+    SqlBuilder.UpdateBuilder buildPatch(Map<String, ?> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to patch: values is empty");
+        }
+        SqlBuilder.UpdateBuilder update = SqlBuilder.UpdateBuilder.update(tableName);
+        for (Map.Entry<String, ?> value : values.entrySet()) {
+            Field field = getFieldByName(value.getKey());
+            if (field.equals(getIdField()) || field.equals(getVersionField())) {
+                // The version is only ever incremented by buildByIdUpdate, or optimistic checks would pass
+                throw new IllegalArgumentException("The @Id and @Version fields cannot be patched");
+            }
+            update.setExpression(getColumnName(field), buildPlaceholder(field))
+                    .param(field.getName(), processFieldValue(field, value.getValue()));
+        }
+        return update;
+    }
+
+    /**
+     * Completes the update with the @UpdatedDate assignments, the @Version increment and the ID condition.
+     *
+     * @return the SQL, to be bound with the update's parameters and the ID
+     */
+    String buildByIdUpdate(SqlBuilder.UpdateBuilder update) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Field field : getUpdatableFields()) {
+            if (field.isAnnotationPresent(UpdatedDate.class) && field.getType() == LocalDateTime.class
+                    && !update.getParameters().containsKey(field.getName())) {
+                update.setExpression(getColumnName(field), buildPlaceholder(field)).param(field.getName(), now);
+            }
+        }
+        Field versionField = getVersionField();
+        if (versionField != null) {
+            // Entities read before this change must fail their optimistic check
+            String column = getColumnName(versionField);
+            update.setExpression(column, column + " + 1");
+        }
+        update.where(getIdColumnName() + " = :" + getIdField().getName());
+        return update.build();
+    }
+
+    private int executeById(SqlBuilder.UpdateBuilder update, Map<ID, ?> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String sql = buildByIdUpdate(update);
+        Map<String, Object> parameters = update.getParameters();
+        int updated = getConfiguredJdbi().inTransaction(handle -> executeById(handle, sql, parameters, rows));
+        markWrite();
+        return updated;
+    }
+
+    /**
+     * Runs a by-ID statement once per row, as a batch when there is more than one. Non-null values
+     * of {@code rows} are bound as {@code :delta}. Returns the number of rows updated.
+     */
+    int executeById(Handle handle, String sql, Map<String, Object> parameters, Map<ID, ?> rows) {
+        String idName = getIdField().getName();
+        if (rows.size() == 1) {
+            Map.Entry<ID, ?> row = rows.entrySet().iterator().next();
+            return bindRow(handle.createUpdate(sql), parameters, idName, row).execute();
+        }
+        PreparedBatch batch = handle.prepareBatch(sql);
+        for (Map.Entry<ID, ?> row : rows.entrySet()) {
+            bindRow(batch, parameters, idName, row).add();
+        }
+        // Counted per row like updateAll: with rewriteBatchedStatements MySQL reports SUCCESS_NO_INFO (-2)
+        int updated = 0;
+        for (int count : batch.execute()) {
+            if (count != 0) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private <S extends SqlStatement<S>> S bindRow(S statement, Map<String, Object> parameters, String idName, Map.Entry<ID, ?> row) {
+        statement.bindMap(parameters).bind(idName, toDatabaseId(row.getKey()));
+        if (row.getValue() != null) {
+            statement.bind("delta", row.getValue());
+        }
+        return statement;
+    }
+
     // ================================
     // UTILITIES
     // ================================
@@ -1544,7 +2966,16 @@ public abstract class CRUD<E, ID> {
                             value = value.toString();
                         }
                     } else {
-                        value = rs.getString(columnName);
+                        UUID.Storage storage = field.getAnnotation(UUID.class).storage();
+                        if (storage == UUID.Storage.STRING) {
+                            value = rs.getString(columnName);
+                        } else {
+                            byte[] bytes = rs.getBytes(columnName);
+                            if (bytes != null) {
+                                java.util.UUID uuid = bytesToUuid(bytes, storage == UUID.Storage.BINARY_SWAPPED);
+                                value = field.getType() == String.class ? uuid.toString() : uuid;
+                            }
+                        }
                     }
                 } else if (field.isAnnotationPresent(JsonColumn.class)) {
                     String json = rs.getString(columnName);
@@ -1558,13 +2989,22 @@ public abstract class CRUD<E, ID> {
                             value = new ObjectMapper().readValue(json, fieldType);
                         }
                     }
+                } else if (isNativeArray(field, dialect)) {
+                    java.sql.Array sqlArray = rs.getArray(columnName);
+                    if (sqlArray != null) {
+                        try {
+                            value = fromSqlArray(field, (Object[]) sqlArray.getArray());
+                        } finally {
+                            sqlArray.free();
+                        }
+                    }
                 } else if (field.isAnnotationPresent(ArrayColumn.class)) {
                     ArrayColumn arrayAnno = field.getAnnotation(ArrayColumn.class);
-                    String[] array = Optional.ofNullable(rs.getString(columnName)).orElse("").split(arrayAnno.separator());
+                    String raw = rs.getString(columnName);
                     if (List.class.isAssignableFrom(field.getType())) {
-                        value = Arrays.asList(array);
+                        value = DelimitedArrayCodec.decodeList(raw, arrayAnno.separator(), getArrayElementType(field));
                     } else if (field.getType().isArray()) {
-                        value = array;
+                        value = DelimitedArrayCodec.decodeArray(raw, arrayAnno.separator(), field.getType().getComponentType());
                     }
                 } else if (field.isAnnotationPresent(EnumColumn.class)) {
                     EnumColumn enumAnno = field.getAnnotation(EnumColumn.class);
@@ -1597,6 +3037,86 @@ public abstract class CRUD<E, ID> {
         }
     }
 
+    /**
+     * Converts the elements read from a SQL array into the field's List or array type.
+     *
+     * @param field the @ArrayColumn field
+     * @param elements the raw elements returned by {@link java.sql.Array#getArray()}
+     * @return a List or typed array matching the field declaration
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object fromSqlArray(Field field, Object[] elements) {
+        Class<?> elementType = getArrayElementType(field);
+        if (field.getType().isArray()) {
+            Object array = java.lang.reflect.Array.newInstance(field.getType().getComponentType(), elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                java.lang.reflect.Array.set(array, i, fromSqlArrayElement(elements[i], elementType));
+            }
+            return array;
+        }
+        List list = new ArrayList<>(elements.length);
+        for (Object element : elements) {
+            list.add(fromSqlArrayElement(element, elementType));
+        }
+        return list;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object fromSqlArrayElement(Object element, Class<?> elementType) {
+        if (element == null) return null;
+        if (elementType.isEnum()) return Enum.valueOf((Class<Enum>) elementType, element.toString());
+        if (elementType == String.class) return element.toString();
+        if (element instanceof Number) {
+            Number number = (Number) element;
+            if (elementType == Long.class || elementType == long.class) return number.longValue();
+            if (elementType == Integer.class || elementType == int.class) return number.intValue();
+        }
+        return element;
+    }
+
+    /**
+     * Whether a field is stored as a native SQL array for the given dialect.
+     *
+     * @param field the field to check
+     * @param dialect the target dialect
+     * @return true for @ArrayColumn(storage = NATIVE) on PostgreSQL
+     */
+    private static boolean isNativeArray(Field field, Dialect dialect) {
+        ArrayColumn arrayColumn = field.getAnnotation(ArrayColumn.class);
+        return arrayColumn != null
+                && arrayColumn.storage() == ArrayColumn.Storage.NATIVE
+                && dialect == Dialect.POSTGRESQL;
+    }
+
+    /**
+     * Resolves the element type of a List or array field.
+     * <p>
+     * Uses the generic type argument for Lists and falls back to String when it
+     * cannot be determined.
+     * </p>
+     *
+     * @param field the field to inspect
+     * @return the element class
+     */
+    static Class<?> getArrayElementType(Field field) {
+        if (field.getType().isArray()) {
+            return field.getType().getComponentType();
+        }
+        if (field.getGenericType() instanceof java.lang.reflect.ParameterizedType) {
+            java.lang.reflect.Type[] args = ((java.lang.reflect.ParameterizedType) field.getGenericType()).getActualTypeArguments();
+            if (args.length == 1 && args[0] instanceof Class) {
+                return (Class<?>) args[0];
+            }
+        }
+        return String.class;
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (type == long.class) return Long.class;
+        if (type == int.class) return Integer.class;
+        return type;
+    }
+
     private Object mapEnum(Class<?> enumClass, String raw, EnumColumn.EnumType type) {
         Object[] constants = enumClass.getEnumConstants();
         switch (type) {
@@ -0,0 +1,248 @@
+package com.roelias.crud;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Codec for {@link CRUD.ArrayColumn} values stored as delimited text.
+ * <p>
+ * Elements are joined with the column separator. Every character of an element that also
+ * appears in the separator, and the escape character ({@code \}), is prefixed with {@code \}.
+ * Escaping single characters rather than whole separator occurrences keeps the encoding
+ * unambiguous for multi-character separators: with {@code "::"}, {@code ["a:", "b"]} and
+ * {@code ["a", ":b"]} would otherwise both encode to {@code a:::b}. Any separator, including
+ * regex metacharacters such as {@code |}, round-trips safely.
+ * Values written before escaping was introduced decode unchanged unless they contain
+ * a backslash.
+ * </p>
+ * <p>
+ * Empty and null elements are stored as empty tokens. A lone empty element would encode to the
+ * same empty string as an empty collection, so it is stored as a single {@code \} instead, which
+ * no other value encodes to. Empty tokens decode to null for boxed types and are rejected for
+ * primitive array components.
+ * </p>
+ * <p>
+ * Decoding scans the string once without regular expressions or intermediate arrays.
+ * Long and Integer elements are parsed directly from the source string.
+ * </p>
+ */
+final class DelimitedArrayCodec {
+
+    private static final char ESCAPE = '\\';
+    // Encoding of a single empty element, distinct from the empty string of an empty collection
+    private static final String EMPTY_ELEMENT = String.valueOf(ESCAPE);
+    private static final int ESTIMATED_ELEMENT_LENGTH = 16;
+
+    private DelimitedArrayCodec() {
+        // Utility class
+    }
+
+    @FunctionalInterface
+    private interface TokenConsumer {
+        void accept(CharSequence source, int start, int end);
+    }
+
+    /**
+     * Encodes a Collection or array (object or primitive) into delimited text.
+     *
+     * @param value the Collection or array to encode
+     * @param separator the element separator
+     * @return the encoded text
+     * @throws IllegalArgumentException if the value is not a Collection or array, or the separator is invalid
+     */
+    static String encode(Object value, String separator) {
+        checkSeparator(separator);
+        if (value instanceof Collection) {
+            Collection<?> values = (Collection<?>) value;
+            StringBuilder out = new StringBuilder(capacityFor(values, separator));
+            boolean first = true;
+            for (Object element : values) {
+                if (!first) out.append(separator);
+                appendEscaped(out, element, separator);
+                first = false;
+            }
+            return finish(out, values.size());
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            int capacity = length * separator.length();
+            if (value instanceof CharSequence[]) {
+                for (CharSequence element : (CharSequence[]) value) {
+                    capacity += element == null ? 0 : element.length();
+                }
+            } else {
+                capacity += length * ESTIMATED_ELEMENT_LENGTH;
+            }
+            StringBuilder out = new StringBuilder(capacity);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(separator);
+                appendEscaped(out, Array.get(value, i), separator);
+            }
+            return finish(out, length);
+        }
+        throw new IllegalArgumentException("Expected a Collection or array but got " +
+                (value == null ? "null" : value.getClass().getName()));
+    }
+
+    private static String finish(StringBuilder out, int elements) {
+        return out.length() == 0 && elements == 1 ? EMPTY_ELEMENT : out.toString();
+    }
+
+    /**
+     * Decodes delimited text into a mutable List of typed elements.
+     *
+     * @param raw the stored text, may be null
+     * @param separator the element separator
+     * @param elementType the element class (String, Long, Integer, Double, java.util.UUID or an enum)
+     * @param <T> the element type
+     * @return the decoded list, empty for null or empty input
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> decodeList(String raw, String separator, Class<T> elementType) {
+        checkSeparator(separator);
+        if (raw == null || raw.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<T> list = new ArrayList<>(countTokens(raw, separator));
+        forEachToken(raw, separator, (source, start, end) ->
+                list.add((T) convert(source, start, end, elementType)));
+        return list;
+    }
+
+    /**
+     * Decodes delimited text into an array of the given component type, sized exactly.
+     *
+     * @param raw the stored text, may be null
+     * @param separator the element separator
+     * @param componentType the array component class, primitives included
+     * @return the decoded array, empty for null or empty input
+     * @throws IllegalArgumentException if an element is empty and the component type is primitive
+     */
+    static Object decodeArray(String raw, String separator, Class<?> componentType) {
+        checkSeparator(separator);
+        if (raw == null || raw.isEmpty()) {
+            return Array.newInstance(componentType, 0);
+        }
+        Object array = Array.newInstance(componentType, countTokens(raw, separator));
+        int[] index = {0};
+        forEachToken(raw, separator, (source, start, end) ->
+                Array.set(array, index[0]++, convert(source, start, end, componentType)));
+        return array;
+    }
+
+    private static void checkSeparator(String separator) {
+        if (separator.isEmpty() || separator.indexOf(ESCAPE) >= 0) {
+            throw new IllegalArgumentException("Array separator must be non-empty and must not contain '\\\\'");
+        }
+    }
+
+    private static int capacityFor(Collection<?> values, String separator) {
+        int capacity = values.size() * separator.length();
+        for (Object element : values) {
+            capacity += element instanceof CharSequence
+                    ? ((CharSequence) element).length()
+                    : ESTIMATED_ELEMENT_LENGTH;
+        }
+        return capacity;
+    }
+
+    private static void appendEscaped(StringBuilder out, Object element, String separator) {
+        if (element == null) return;
+        CharSequence text = element instanceof Enum ? ((Enum<?>) element).name()
+                : element instanceof CharSequence ? (CharSequence) element
+                : element.toString();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE || separator.indexOf(c) >= 0) {
+                out.append(ESCAPE);
+            }
+            out.append(c);
+        }
+    }
+
+    private static int countTokens(String raw, String separator) {
+        int count = 1;
+        int length = raw.length();
+        for (int i = 0; i < length; ) {
+            if (raw.charAt(i) == ESCAPE) {
+                i += 2;
+            } else if (raw.startsWith(separator, i)) {
+                count++;
+                i += separator.length();
+            } else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scans the text once and hands each token to the consumer. Tokens without escapes are
+     * passed as a range of the source string; escaped tokens are unescaped into a single
+     * reusable buffer.
+     */
+    private static void forEachToken(String raw, String separator, TokenConsumer consumer) {
+        if (raw.equals(EMPTY_ELEMENT)) {
+            consumer.accept(raw, 0, 0);
+            return;
+        }
+        int length = raw.length();
+        int start = 0;
+        StringBuilder unescaped = null;
+        boolean escaped = false;
+        int i = 0;
+        while (i <= length) {
+            if (i == length || raw.startsWith(separator, i)) {
+                if (escaped) {
+                    unescaped.setLength(0);
+                    for (int j = start; j < i; j++) {
+                        char c = raw.charAt(j);
+                        if (c == ESCAPE && j + 1 < i) {
+                            c = raw.charAt(++j);
+                        }
+                        unescaped.append(c);
+                    }
+                    consumer.accept(unescaped, 0, unescaped.length());
+                } else {
+                    consumer.accept(raw, start, i);
+                }
+                i += i == length ? 1 : separator.length();
+                start = i;
+                escaped = false;
+            } else if (raw.charAt(i) == ESCAPE) {
+                if (unescaped == null) unescaped = new StringBuilder();
+                escaped = true;
+                i = Math.min(i + 2, length);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(CharSequence source, int start, int end, Class<?> type) {
+        if (start == end && type.isPrimitive()) {
+            throw new IllegalArgumentException("Empty element cannot be decoded into a " + type.getName() + " array");
+        }
+        if (type == Long.class || type == long.class) {
+            return start == end ? null : Long.parseLong(source, start, end, 10);
+        }
+        if (type == Integer.class || type == int.class) {
+            return start == end ? null : Integer.parseInt(source, start, end, 10);
+        }
+        String text = source.subSequence(start, end).toString();
+        if (type.isEnum()) {
+            return text.isEmpty() ? null : Enum.valueOf((Class<Enum>) type, text);
+        }
+        if (type == Double.class || type == double.class) {
+            return text.isEmpty() ? null : Double.valueOf(text);
+        }
+        if (type == java.util.UUID.class) {
+            return text.isEmpty() ? null : java.util.UUID.fromString(text);
+        }
+        return text;
+    }
+}
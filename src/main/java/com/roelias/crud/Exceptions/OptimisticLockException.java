@@ -0,0 +1,33 @@
+package com.roelias.crud.Exceptions;
+
+public class OptimisticLockException extends RuntimeException {
+    private final String table;
+    // The key and version may be of any type: they are not serialized, the message keeps their values
+    private final transient Object id;
+    private final transient Object expectedVersion;
+
+    public OptimisticLockException(String table, Object id, Object expectedVersion) {
+        super("Row " + id + " of " + table + " was modified concurrently (expected version " + expectedVersion + ")");
+        this.table = table;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Primary key of the row, null if the exception was deserialized
+     */
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * Version the update expected, null if the exception was deserialized
+     */
+    public Object getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,14 @@
+package com.roelias.crud.Exceptions;
+
+public class TenantLimitExceededException extends TenantException {
+    private final String tenantId;
+
+    public TenantLimitExceededException(String tenantId, String reason) {
+        super("Limit exceeded for tenant " + tenantId + ": " + reason);
+        this.tenantId = tenantId;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+}
@@ -0,0 +1,7 @@
+package com.roelias.crud.Exceptions;
+
+public class TenantUnavailableException extends TenantException {
+    public TenantUnavailableException(String tenantId, Throwable cause) {
+        super("Tenant unavailable: " + tenantId + (cause != null ? " (" + cause.getMessage() + ")" : ""), cause);
+    }
+}
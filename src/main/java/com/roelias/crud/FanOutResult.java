@@ -0,0 +1,59 @@
+package com.roelias.crud;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resultado de un {@link TenantFanOut}: resultados de los tenants que terminaron bien y errores de los que fallaron.
+ */
+public class FanOutResult<R> {
+    private final Map<String, R> results;
+    private final Map<String, Throwable> failures;
+    private final Duration elapsed;
+
+    FanOutResult(Map<String, R> results, Map<String, Throwable> failures, Duration elapsed) {
+        this.results = Collections.unmodifiableMap(results);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsed = elapsed;
+    }
+
+    /** Resultado por tenant, en el orden en que se pidieron los tenants (vacío en modo stream) */
+    public Map<String, R> getResults() { return results; }
+    /** Error por tenant; las expiraciones se reportan como TimeoutException */
+    public Map<String, Throwable> getFailures() { return failures; }
+    public Duration getElapsed() { return elapsed; }
+
+    /**
+     * true si ningún tenant falló
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Une los resultados de todos los tenants en una sola lista, p. ej. {@code result.merge(list -> list)}
+     */
+    public <E> List<E> merge(Function<? super R, ? extends Collection<? extends E>> extractor) {
+        List<E> merged = new ArrayList<>();
+        for (R result : results.values()) {
+            if (result != null) {
+                merged.addAll(extractor.apply(result));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return "FanOutResult{" +
+                "succeeded=" + results.size() +
+                ", failed=" + failures.keySet() +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+}
@@ -0,0 +1,152 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent single-row writes into one transaction per {@link Jdbi}.
+ * <p>
+ * The first writer to arrive opens a batch and becomes its leader: it waits up to {@code window}
+ * (or until {@code maxBatchSize} writes have joined), then runs every write of the batch in a single
+ * transaction and commits once. Each write runs behind its own savepoint, so a failing write is
+ * rolled back alone and only its caller sees the exception; if the commit itself fails, or a write
+ * throws an {@link Error}, the whole transaction rolls back and every caller of the batch gets that
+ * failure. There is no background thread: batches are executed by the
+ * leader's own thread.
+ * </p>
+ *
+ * @see CRUD#enableGroupCommit(Duration, int)
+ */
+final class GroupCommitter {
+
+    private static final String SAVEPOINT = "group_commit";
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+    // Open batch per Jdbi, guarded by the map's monitor
+    private final Map<Jdbi, Batch> openBatches = new HashMap<>();
+
+    GroupCommitter(Duration window, int maxBatchSize) {
+        if (window == null || window.isNegative()) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds a write to the open batch of {@code jdbi}, running the batch if this caller is its leader.
+     *
+     * @param jdbi the instance the write must run on
+     * @param write the write, executed inside the shared transaction
+     * @return a future completed with the write's own result or exception once the batch has committed
+     */
+    <R> CompletableFuture<R> submit(Jdbi jdbi, Function<Handle, R> write) {
+        PendingWrite<R> pending = new PendingWrite<>(write);
+        Batch leading = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(jdbi);
+            if (batch == null) {
+                batch = new Batch();
+                openBatches.put(jdbi, batch);
+                leading = batch;
+            }
+            batch.writes.add(pending);
+            if (batch.writes.size() >= maxBatchSize) {
+                openBatches.remove(jdbi, batch);
+                batch.full.countDown();
+            }
+        }
+        if (leading != null) {
+            awaitWindow(leading);
+            synchronized (openBatches) {
+                openBatches.remove(jdbi, leading);
+            }
+            execute(jdbi, leading.writes);
+        }
+        return pending.future;
+    }
+
+    private void awaitWindow(Batch batch) {
+        try {
+            batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Run the batch now: the other writers are waiting on this thread
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Jdbi jdbi, List<PendingWrite<?>> batch) {
+        try {
+            jdbi.useTransaction(handle -> {
+                for (PendingWrite<?> pending : batch) {
+                    pending.runIn(handle);
+                }
+            });
+        } catch (Throwable e) {
+            // Every follower is blocked on its future: complete them all before anything unwinds
+            for (PendingWrite<?> pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            if (e instanceof Error error) {
+                throw error;
+            }
+            return;
+        }
+        for (PendingWrite<?> pending : batch) {
+            pending.complete();
+        }
+    }
+
+    private static final class Batch {
+        final List<PendingWrite<?>> writes = new ArrayList<>();
+        final CountDownLatch full = new CountDownLatch(1);
+    }
+
+    private static final class PendingWrite<R> {
+        final Function<Handle, R> write;
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        R result;
+        RuntimeException failure;
+
+        PendingWrite(Function<Handle, R> write) {
+            this.write = write;
+        }
+
+        void runIn(Handle handle) {
+            handle.savepoint(SAVEPOINT);
+            try {
+                result = write.apply(handle);
+            } catch (RuntimeException e) {
+                failure = e;
+                handle.rollbackToSavepoint(SAVEPOINT);
+                return;
+            }
+            handle.releaseSavepoint(SAVEPOINT);
+        }
+
+        /**
+         * Publishes the outcome once the transaction has committed
+         */
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.ConnectionFactory;
+import org.jdbi.v3.core.Jdbi;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Pool multi-tenant que entrega un {@link Jdbi} por tenant respaldado por un {@link TenantDataSource}.
+ *
+ * <pre>{@code
+ * JdbiConnectionPool pool = new JdbiConnectionPool(PoolSettings.builder().maxSize(20).build());
+ * pool.addConnection(new TenantConnection("acme", "jdbc:postgresql://db/acme", "app", "secret", "org.postgresql.Driver"));
+ *
+ * Jdbi jdbi = pool.getConnection("acme").orElseThrow();
+ * }</pre>
+ * <p>
+ * Los tenants que apuntan al mismo servidor (jdbcUrl, usuario, contraseña y driver) comparten un único
+ * {@link TenantDataSource}; los declarados con schema lo cambian al prestar la conexión. Cada tenant
+ * conserva su propio Jdbi, su contabilidad ({@link #getUsage}) y su cupo de maxSize conexiones; el pool
+ * compartido crece en maxSize por cada tenant que lo usa. El pool compartido se cierra cuando se cierra
+ * el último de sus tenants. {@link #setSharePools(boolean)} lo limita a los tenants con schema.
+ * </p>
+ */
+public class JdbiConnectionPool extends AbstractConnectionPool<Jdbi> {
+
+    private final PoolSettings settings;
+    private final Consumer<Jdbi> jdbiCustomizer;
+    private final Map<Jdbi, TenantDataSource> dataSources = new ConcurrentHashMap<>();
+    // Pools compartidos por servidor y cuántos tenants activos los usan (protegidos por sharedPools)
+    private final Map<String, TenantDataSource> sharedPools = new HashMap<>();
+    private final Map<TenantDataSource, Integer> sharedReferences = new HashMap<>();
+    private final Map<String, TenantUsage> usages = new ConcurrentHashMap<>();
+    private volatile TenantLimiter limiter;
+    private volatile boolean sharePools = true;
+
+    public JdbiConnectionPool() {
+        this(PoolSettings.defaults());
+    }
+
+    public JdbiConnectionPool(PoolSettings settings) {
+        this(settings, jdbi -> {});
+    }
+
+    /**
+     * @param settings configuración aplicada al pool de cada tenant
+     * @param jdbiCustomizer se aplica una sola vez a cada Jdbi creado (plugins, mappers, etc.)
+     */
+    public JdbiConnectionPool(PoolSettings settings, Consumer<Jdbi> jdbiCustomizer) {
+        this.settings = settings;
+        this.jdbiCustomizer = jdbiCustomizer;
+    }
+
+    @Override
+    protected Jdbi createConnectionObject(TenantConnection connection) {
+        TenantDataSource dataSource = connection.hasSchema() || sharePools
+                ? retainSharedPool(connection)
+                : TenantDataSource.create(connection, settings);
+        TenantUsage usage = usages.computeIfAbsent(connection.getTenantId(), tenantId -> new TenantUsage(tenantId, settings.getMaxSize()));
+        DataSource tenantView = new TenantDataSourceView(dataSource, connection.getSchema(), usage);
+        TenantLimiter currentLimiter = limiter;
+        Jdbi jdbi = currentLimiter == null
+                ? Jdbi.create(tenantView)
+                : Jdbi.create(new LimitedConnectionFactory(connection.getTenantId(), tenantView, currentLimiter));
+        jdbiCustomizer.accept(jdbi);
+        dataSources.put(jdbi, dataSource);
+        return jdbi;
+    }
+
+    @Override
+    protected void closeConnection(Jdbi connection) {
+        TenantDataSource dataSource = dataSources.remove(connection);
+        if (dataSource != null && releaseSharedPool(dataSource)) {
+            dataSource.close();
+        }
+        usages.keySet().removeIf(tenantId -> resolveConfig(tenantId) == null);
+    }
+
+    @Override
+    protected void checkConnection(Jdbi connection) throws SQLException {
+        TenantDataSource dataSource = dataSources.get(connection);
+        if (dataSource != null) {
+            dataSource.probe();
+        }
+    }
+
+    private TenantDataSource retainSharedPool(TenantConnection connection) {
+        // Los tenants con schema no comparten con los que no lo tienen: estos no restaurarían el schema
+        String key = connection.serverKey() + (connection.hasSchema() ? "\nschema" : "");
+        synchronized (sharedPools) {
+            TenantDataSource dataSource = sharedPools.computeIfAbsent(key, k ->
+                    TenantDataSource.create(new TenantConnection(sharedPoolId(k), connection.getJdbcUrl(),
+                            connection.getUsername(), connection.getPassword(), connection.getDriverClassName()), settings));
+            int references = sharedReferences.merge(dataSource, 1, Integer::sum);
+            dataSource.resize(settings.getMaxSize() * references);
+            return dataSource;
+        }
+    }
+
+    /**
+     * Id del pool compartido en logs y excepciones: un resumen de la clave, que no expone la URL ni las credenciales
+     */
+    static String sharedPoolId(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return "shared:" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            // Toda JVM debe incluir SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Descuenta un tenant del pool; devuelve true si hay que cerrarlo (no compartido o último usuario)
+     */
+    private boolean releaseSharedPool(TenantDataSource dataSource) {
+        synchronized (sharedPools) {
+            Integer references = sharedReferences.get(dataSource);
+            if (references == null) {
+                return true;
+            }
+            if (references > 1) {
+                sharedReferences.put(dataSource, references - 1);
+                dataSource.resize(settings.getMaxSize() * (references - 1));
+                return false;
+            }
+            sharedReferences.remove(dataSource);
+            sharedPools.values().remove(dataSource);
+            return true;
+        }
+    }
+
+    /**
+     * Obtiene el DataSource físico del tenant (útil para métricas); puede estar compartido con otros tenants
+     */
+    public Optional<TenantDataSource> getDataSource(String tenantId) {
+        return getConnection(tenantId).map(dataSources::get);
+    }
+
+    /**
+     * Uso de conexiones del tenant, independiente de si su pool físico es compartido
+     */
+    public Optional<TenantUsage> getUsage(String tenantId) {
+        return Optional.ofNullable(usages.get(tenantId));
+    }
+
+    /**
+     * Número de pools físicos abiertos (menor que los tenants activos cuando se comparten)
+     */
+    public int getPhysicalPoolCount() {
+        return (int) dataSources.values().stream().distinct().count();
+    }
+
+    /**
+     * Si es true (por defecto), los tenants sin schema con jdbcUrl y credenciales idénticos comparten
+     * pool físico. Cada tenant conserva su capacidad: el pool compartido admite maxSize conexiones
+     * prestadas por cada tenant que lo usa y ningún tenant pasa de maxSize, así que uno ocupado no deja
+     * sin conexiones a los demás. Lo que se ahorra son conexiones ociosas: minIdle se mantiene una vez
+     * por pool físico. Aplica a los tenants creados desde ahora
+     */
+    public void setSharePools(boolean sharePools) {
+        this.sharePools = sharePools;
+    }
+
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Prepara el calentamiento en paralelo de los pools de los tenants
+     */
+    public TenantWarmUp warmUp() {
+        return new TenantWarmUp(this);
+    }
+
+    /**
+     * Aplica límites por tenant a cada conexión que abran los Jdbi creados desde ahora
+     */
+    public void setLimiter(TenantLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public TenantLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Reserva cupo en el limiter al abrir la conexión y lo devuelve al cerrarla
+     */
+    private static final class LimitedConnectionFactory implements ConnectionFactory {
+        private final String tenantId;
+        private final DataSource dataSource;
+        private final TenantLimiter limiter;
+        private final Map<Connection, TenantLimiter.Permit> permits = new ConcurrentHashMap<>();
+
+        LimitedConnectionFactory(String tenantId, DataSource dataSource, TenantLimiter limiter) {
+            this.tenantId = tenantId;
+            this.dataSource = dataSource;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public Connection openConnection() throws SQLException {
+            TenantLimiter.Permit permit = limiter.acquire(tenantId);
+            try {
+                Connection connection = dataSource.getConnection();
+                permits.put(connection, permit);
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void closeConnection(Connection connection) throws SQLException {
+            try {
+                connection.close();
+            } finally {
+                TenantLimiter.Permit permit = permits.remove(connection);
+                if (permit != null) {
+                    permit.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.roelias.crud;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configuración inmutable del pool de conexiones de cada tenant.
+ *
+ * <pre>{@code
+ * PoolSettings settings = PoolSettings.builder()
+ *         .minIdle(2)
+ *         .maxSize(20)
+ *         .acquireTimeout(Duration.ofSeconds(5))
+ *         .leakDetectionThreshold(Duration.ofMinutes(2))
+ *         .build();
+ * }</pre>
+ */
+public class PoolSettings {
+    private final int minIdle;
+    private final int maxSize;
+    private final Duration acquireTimeout;
+    private final Duration idleTimeout;
+    private final Duration maxLifetime;
+    private final Duration leakDetectionThreshold;
+    private final Duration validationTimeout;
+    private final Duration validationInterval;
+    private final Duration housekeepingInterval;
+
+    private PoolSettings(Builder builder) {
+        if (builder.maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        if (builder.minIdle < 0 || builder.minIdle > builder.maxSize) {
+            throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+        }
+        if (builder.validationInterval.isNegative()) {
+            throw new IllegalArgumentException("validationInterval must not be negative");
+        }
+        // La tarea de mantenimiento se programa en milisegundos y el periodo debe ser positivo
+        if (builder.housekeepingInterval.toMillis() < 1) {
+            throw new IllegalArgumentException("housekeepingInterval must be at least 1 ms");
+        }
+        this.minIdle = builder.minIdle;
+        this.maxSize = builder.maxSize;
+        this.acquireTimeout = builder.acquireTimeout;
+        this.idleTimeout = builder.idleTimeout;
+        this.maxLifetime = builder.maxLifetime;
+        this.leakDetectionThreshold = builder.leakDetectionThreshold;
+        this.validationTimeout = builder.validationTimeout;
+        this.validationInterval = builder.validationInterval;
+        this.housekeepingInterval = builder.housekeepingInterval;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static PoolSettings defaults() {
+        return builder().build();
+    }
+
+    // Getters (inmutabilidad)
+    public int getMinIdle() { return minIdle; }
+    public int getMaxSize() { return maxSize; }
+    public Duration getAcquireTimeout() { return acquireTimeout; }
+    public Duration getIdleTimeout() { return idleTimeout; }
+    public Duration getMaxLifetime() { return maxLifetime; }
+    public Duration getLeakDetectionThreshold() { return leakDetectionThreshold; }
+    public Duration getValidationTimeout() { return validationTimeout; }
+    public Duration getValidationInterval() { return validationInterval; }
+    public Duration getHousekeepingInterval() { return housekeepingInterval; }
+
+    @Override
+    public String toString() {
+        return "PoolSettings{" +
+                "minIdle=" + minIdle +
+                ", maxSize=" + maxSize +
+                ", acquireTimeout=" + acquireTimeout +
+                ", idleTimeout=" + idleTimeout +
+                ", maxLifetime=" + maxLifetime +
+                ", leakDetectionThreshold=" + leakDetectionThreshold +
+                '}';
+    }
+
+    public static class Builder {
+        private int minIdle = 0;
+        private int maxSize = 10;
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private Duration maxLifetime = Duration.ofMinutes(30);
+        private Duration leakDetectionThreshold = Duration.ZERO;
+        private Duration validationTimeout = Duration.ofSeconds(5);
+        private Duration validationInterval = Duration.ofMillis(500);
+        private Duration housekeepingInterval = Duration.ofSeconds(30);
+
+        private Builder() {}
+
+        /**
+         * Conexiones ociosas que el pool mantiene abiertas
+         */
+        public Builder minIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * Máximo de conexiones físicas por tenant
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Tiempo máximo de espera por una conexión libre (orden FIFO entre los que esperan)
+         */
+        public Builder acquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = Objects.requireNonNull(acquireTimeout);
+            return this;
+        }
+
+        /**
+         * Tiempo tras el cual una conexión ociosa por encima de minIdle se cierra. Duration.ZERO lo desactiva
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = Objects.requireNonNull(idleTimeout);
+            return this;
+        }
+
+        /**
+         * Vida máxima de una conexión física; se retira al devolverse o estando ociosa. Duration.ZERO la desactiva
+         */
+        public Builder maxLifetime(Duration maxLifetime) {
+            this.maxLifetime = Objects.requireNonNull(maxLifetime);
+            return this;
+        }
+
+        /**
+         * Tiempo prestada tras el cual se reporta una posible fuga. Duration.ZERO la desactiva
+         */
+        public Builder leakDetectionThreshold(Duration leakDetectionThreshold) {
+            this.leakDetectionThreshold = Objects.requireNonNull(leakDetectionThreshold);
+            return this;
+        }
+
+        /**
+         * Tiempo máximo para Connection.isValid() al validar en el préstamo
+         */
+        public Builder validationTimeout(Duration validationTimeout) {
+            this.validationTimeout = Objects.requireNonNull(validationTimeout);
+            return this;
+        }
+
+        /**
+         * Las conexiones usadas hace menos de este intervalo se prestan sin validar. Duration.ZERO valida siempre
+         */
+        public Builder validationInterval(Duration validationInterval) {
+            this.validationInterval = Objects.requireNonNull(validationInterval);
+            return this;
+        }
+
+        /**
+         * Frecuencia de la tarea de mantenimiento (ociosas, vida máxima, fugas, minIdle). Mínimo 1 ms
+         */
+        public Builder housekeepingInterval(Duration housekeepingInterval) {
+            this.housekeepingInterval = Objects.requireNonNull(housekeepingInterval);
+            return this;
+        }
+
+        public PoolSettings build() {
+            return new PoolSettings(this);
+        }
+    }
+}
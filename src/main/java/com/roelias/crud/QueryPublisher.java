@@ -0,0 +1,196 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.result.ResultIterator;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link Flow.Publisher} that streams the rows of a query from a database cursor.
+ * <p>
+ * Each subscription opens its own {@link Handle} on the first request and pulls rows only while
+ * there is outstanding demand, so memory stays bounded by the driver's fetch size regardless of the
+ * table size. Rows are emitted from the given executor. The statement and the handle are closed on
+ * completion, on error and on {@link Flow.Subscription#cancel()}.
+ * </p>
+ *
+ * @param <T> the row type
+ * @see CRUD#publish(SqlBuilder)
+ */
+final class QueryPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<Supplier<Handle>> handleOpener;
+    private final Function<Handle, ResultIterator<T>> query;
+    private final Executor executor;
+
+    /**
+     * @param handleOpener called on the subscribing thread; returns the opener of the subscription's handle
+     *                     (which begins a transaction if the cursor needs one), run later on the executor
+     * @param query runs the query on that handle and returns the row iterator
+     * @param executor runs the drain loop that emits the rows
+     */
+    QueryPublisher(Supplier<Supplier<Handle>> handleOpener, Function<Handle, ResultIterator<T>> query, Executor executor) {
+        this.handleOpener = Objects.requireNonNull(handleOpener);
+        this.query = Objects.requireNonNull(query);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Supplier<Handle> opener;
+        try {
+            opener = handleOpener.get();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(e);
+            return;
+        }
+        CursorSubscription subscription = new CursorSubscription(subscriber, opener);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class CursorSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Supplier<Handle> opener;
+        private final AtomicLong requested = new AtomicLong();
+        // Work-in-progress counter: only the thread that moves it from 0 runs the drain loop
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        // Only touched from the drain loop
+        private Handle handle;
+        private ResultIterator<T> rows;
+        private boolean terminated;
+
+        CursorSubscription(Flow.Subscriber<? super T> subscriber, Supplier<Handle> opener) {
+            this.subscriber = subscriber;
+            this.opener = opener;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive, got " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    wip.set(0);
+                    terminate(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                if (cancelled) {
+                    terminated = true;
+                    closeCursor();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+                long demand = requested.get();
+                long emitted = 0;
+                try {
+                    if (demand > 0 && rows == null) {
+                        handle = opener.get();
+                        rows = query.apply(handle);
+                    }
+                    while (emitted < demand && !cancelled) {
+                        if (!rows.hasNext()) {
+                            terminated = true;
+                            closeCursor();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(rows.next());
+                        emitted++;
+                    }
+                } catch (Throwable e) {
+                    terminate(e);
+                    return;
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate(Throwable error) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            closeCursor();
+            if (!cancelled) {
+                subscriber.onError(error);
+            }
+        }
+
+        private void closeCursor() {
+            try {
+                if (rows != null) {
+                    rows.close();
+                }
+            } catch (RuntimeException ignored) {
+                // The handle is closed anyway
+            } finally {
+                rows = null;
+                if (handle != null) {
+                    try {
+                        if (handle.isInTransaction()) {
+                            handle.rollback();
+                        }
+                    } catch (RuntimeException ignored) {
+                        // Closing the handle releases the connection even if the rollback failed
+                    }
+                    try {
+                        handle.close();
+                    } catch (RuntimeException ignored) {
+                        // Nothing left to release
+                    }
+                    handle = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.roelias.crud;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tenants que cambiarían de shard tras agregar o quitar un shard en un {@link ShardRouter}.
+ */
+public class RebalancePlan {
+
+    /**
+     * Movimiento de un tenant entre shards
+     */
+    public static class Move {
+        private final String tenantId;
+        private final String fromShard;
+        private final String toShard;
+
+        Move(String tenantId, String fromShard, String toShard) {
+            this.tenantId = tenantId;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        public String getTenantId() { return tenantId; }
+        public String getFromShard() { return fromShard; }
+        public String getToShard() { return toShard; }
+
+        @Override
+        public String toString() {
+            return tenantId + ": " + fromShard + " -> " + toShard;
+        }
+    }
+
+    private final int tenantsConsidered;
+    private final List<Move> moves;
+
+    RebalancePlan(int tenantsConsidered, List<Move> moves) {
+        this.tenantsConsidered = tenantsConsidered;
+        this.moves = Collections.unmodifiableList(moves);
+    }
+
+    public List<Move> getMoves() { return moves; }
+    public int getTenantsConsidered() { return tenantsConsidered; }
+
+    /**
+     * Fracción de tenants que cambian de shard
+     */
+    public double getMovedFraction() {
+        return tenantsConsidered == 0 ? 0 : (double) moves.size() / tenantsConsidered;
+    }
+
+    @Override
+    public String toString() {
+        return "RebalancePlan{" +
+                "moved=" + moves.size() + "/" + tenantsConsidered +
+                ", moves=" + moves +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package com.roelias.crud;
+
+import java.util.Objects;
+
+/**
+ * Servidor de base de datos al que un {@link ShardRouter} asigna tenants.
+ */
+public class Shard {
+    private final String shardId;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final String driverClassName;
+    private final boolean schemaPerTenant;
+
+    public Shard(String shardId, String jdbcUrl, String username, String password, String driverClassName) {
+        this(shardId, jdbcUrl, username, password, driverClassName, false);
+    }
+
+    /**
+     * @param schemaPerTenant si es true cada tenant vive en el schema (o base de datos MySQL) con su tenantId
+     */
+    public Shard(String shardId, String jdbcUrl, String username, String password, String driverClassName,
+                 boolean schemaPerTenant) {
+        this.shardId = Objects.requireNonNull(shardId, "shardId cannot be null");
+        this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl cannot be null");
+        this.username = Objects.requireNonNull(username, "username cannot be null");
+        this.password = Objects.requireNonNull(password, "password cannot be null");
+        this.driverClassName = Objects.requireNonNull(driverClassName, "driverClassName cannot be null");
+        this.schemaPerTenant = schemaPerTenant;
+    }
+
+    // Getters (inmutabilidad)
+    public String getShardId() { return shardId; }
+    public String getJdbcUrl() { return jdbcUrl; }
+    public String getUsername() { return username; }
+    public String getPassword() { return password; }
+    public String getDriverClassName() { return driverClassName; }
+    public boolean isSchemaPerTenant() { return schemaPerTenant; }
+
+    /**
+     * Configuración de conexión de un tenant alojado en este shard
+     */
+    public TenantConnection connectionFor(String tenantId) {
+        return new TenantConnection(tenantId, jdbcUrl, username, password, driverClassName,
+                schemaPerTenant ? tenantId : null);
+    }
+
+    @Override
+    public String toString() {
+        return "Shard{" +
+                "shardId='" + shardId + '\'' +
+                ", jdbcUrl='" + jdbcUrl + '\'' +
+                ", schemaPerTenant=" + schemaPerTenant +
+                '}';
+    }
+}
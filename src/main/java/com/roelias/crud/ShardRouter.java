@@ -0,0 +1,224 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asigna tenants a shards con hashing consistente.
+ * <p>
+ * Cada shard ocupa {@code virtualNodes} posiciones en el anillo, así que agregar un shard solo
+ * mueve alrededor de 1/N de los tenants. Un tenant fijado con {@link #pin} ignora el anillo. Las
+ * consultas leen una instantánea inmutable del anillo, sin locks.
+ * </p>
+ *
+ * <pre>{@code
+ * ShardRouter router = new ShardRouter();
+ * router.addShard(new Shard("db1", "jdbc:postgresql://db1/app", "app", "secret", "org.postgresql.Driver", true));
+ * router.addShard(new Shard("db2", "jdbc:postgresql://db2/app", "app", "secret", "org.postgresql.Driver", true));
+ * router.pin("big-customer", "db2");
+ *
+ * pool.setShardRouter(router);
+ * pool.getConnection("acme");   // conecta al shard que le corresponde a "acme"
+ *
+ * RebalancePlan plan = router.planAddShard(db3, allTenantIds);
+ * }</pre>
+ */
+public class ShardRouter {
+
+    private final int virtualNodes;
+    // Protegido por this; el anillo se reconstruye en cada cambio
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final Map<String, String> pins = new ConcurrentHashMap<>();
+    private volatile Ring ring = Ring.build(Collections.emptyList(), 1);
+
+    public ShardRouter() {
+        this(160);
+    }
+
+    public ShardRouter(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Agrega un shard o reemplaza el que tenga el mismo id
+     */
+    public synchronized void addShard(Shard shard) {
+        shards.put(shard.getShardId(), shard);
+        ring = Ring.build(shards.values(), virtualNodes);
+    }
+
+    public synchronized void removeShard(String shardId) {
+        if (shards.remove(shardId) != null) {
+            ring = Ring.build(shards.values(), virtualNodes);
+        }
+    }
+
+    public synchronized Collection<Shard> getShards() {
+        return new ArrayList<>(shards.values());
+    }
+
+    /**
+     * Fija un tenant a un shard, ignorando el anillo
+     */
+    public void pin(String tenantId, String shardId) {
+        synchronized (this) {
+            if (!shards.containsKey(shardId)) {
+                throw new IllegalArgumentException("Unknown shard: " + shardId);
+            }
+        }
+        pins.put(tenantId, shardId);
+    }
+
+    public void unpin(String tenantId) {
+        pins.remove(tenantId);
+    }
+
+    /**
+     * Shard del tenant: el fijado si sigue existiendo, si no el del anillo
+     *
+     * @throws TenantException si no hay shards
+     */
+    public Shard route(String tenantId) {
+        return route(tenantId, ring);
+    }
+
+    private Shard route(String tenantId, Ring ring) {
+        String pinned = pins.get(tenantId);
+        if (pinned != null) {
+            Shard shard = ring.byId.get(pinned);
+            if (shard != null) {
+                return shard;
+            }
+        }
+        if (ring.owners.length == 0) {
+            throw new TenantException("No shards configured to route tenant " + tenantId);
+        }
+        return ring.locate(hash(tenantId));
+    }
+
+    /**
+     * Configuración de conexión del tenant en su shard
+     */
+    public TenantConnection toConnection(String tenantId) {
+        return route(tenantId).connectionFor(tenantId);
+    }
+
+    /**
+     * Qué tenants cambiarían de shard si se agrega este shard (no modifica el router)
+     */
+    public RebalancePlan planAddShard(Shard shard, Collection<String> tenantIds) {
+        Map<String, Shard> next;
+        synchronized (this) {
+            next = new LinkedHashMap<>(shards);
+        }
+        next.put(shard.getShardId(), shard);
+        return plan(Ring.build(next.values(), virtualNodes), tenantIds);
+    }
+
+    /**
+     * Qué tenants cambiarían de shard si se quita este shard (no modifica el router)
+     */
+    public RebalancePlan planRemoveShard(String shardId, Collection<String> tenantIds) {
+        Map<String, Shard> next;
+        synchronized (this) {
+            next = new LinkedHashMap<>(shards);
+        }
+        next.remove(shardId);
+        return plan(Ring.build(next.values(), virtualNodes), tenantIds);
+    }
+
+    private RebalancePlan plan(Ring target, Collection<String> tenantIds) {
+        Ring current = ring;
+        List<RebalancePlan.Move> moves = new ArrayList<>();
+        for (String tenantId : tenantIds) {
+            String from = route(tenantId, current).getShardId();
+            String to = route(tenantId, target).getShardId();
+            if (!from.equals(to)) {
+                moves.add(new RebalancePlan.Move(tenantId, from, to));
+            }
+        }
+        return new RebalancePlan(tenantIds.size(), moves);
+    }
+
+    /**
+     * FNV-1a de 64 bits con mezcla final (fmix64 de Murmur3) para repartir bien claves parecidas
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Anillo inmutable: posiciones ordenadas y el shard dueño de cada una
+     */
+    private static final class Ring {
+        final long[] positions;
+        final Shard[] owners;
+        final Map<String, Shard> byId;
+
+        private Ring(long[] positions, Shard[] owners, Map<String, Shard> byId) {
+            this.positions = positions;
+            this.owners = owners;
+            this.byId = byId;
+        }
+
+        static Ring build(Collection<Shard> shards, int virtualNodes) {
+            int size = shards.size() * virtualNodes;
+            long[][] entries = new long[size][];
+            List<Shard> list = new ArrayList<>(shards);
+            int n = 0;
+            for (int s = 0; s < list.size(); s++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    entries[n++] = new long[]{hash(list.get(s).getShardId() + "#" + v), s};
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+            long[] positions = new long[size];
+            Shard[] owners = new Shard[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = entries[i][0];
+                owners[i] = list.get((int) entries[i][1]);
+            }
+            Map<String, Shard> byId = new LinkedHashMap<>();
+            list.forEach(shard -> byId.put(shard.getShardId(), shard));
+            return new Ring(positions, owners, byId);
+        }
+
+        /**
+         * Primer nodo en sentido horario desde el hash
+         */
+        Shard locate(long hash) {
+            int index = Arrays.binarySearch(positions, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == positions.length ? 0 : index];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRouter{shards=" + ring.byId.keySet() + ", pins=" + pins.size() + ", virtualNodes=" + virtualNodes + '}';
+    }
+}
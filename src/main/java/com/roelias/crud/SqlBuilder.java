@@ -1,7 +1,12 @@
 package com.roelias.crud;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * SQL Builder fluido compatible con JDBI
@@ -109,6 +114,12 @@ public class SqlBuilder {
     private Integer offsetValue;
     private final Map<String, Object> parameters = new HashMap<>();
     private boolean distinct = false;
+    private boolean forUpdate = false;
+    private boolean skipLocked = false;
+    private CRUD.Dialect dialect = CRUD.Dialect.MYSQL;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Pattern JSON_PATH_SEGMENT = Pattern.compile("[A-Za-z0-9_]+");
 
     // Constructor privado para forzar uso de métodos estáticos
     private SqlBuilder() {}
@@ -164,6 +175,12 @@ public class SqlBuilder {
         return this;
     }
 
+    // Dialecto usado por las condiciones específicas (JSON, etc.). Por defecto MYSQL
+    public SqlBuilder dialect(CRUD.Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
     // FROM
     public SqlBuilder from(String table) {
         this.fromTable = table;
@@ -296,6 +313,83 @@ public class SqlBuilder {
         return this;
     }
 
+    // Arrays nativos de PostgreSQL (aprovechan índices GIN)
+    public SqlBuilder whereArrayContains(String field, String paramName, Object[] values) {
+        return arrayCondition(field, "@>", paramName, values);
+    }
+
+    public SqlBuilder whereArrayOverlaps(String field, String paramName, Object[] values) {
+        return arrayCondition(field, "&&", paramName, values);
+    }
+
+    private SqlBuilder arrayCondition(String field, String operator, String paramName, Object[] values) {
+        String arrayType = arrayElementType(values.getClass().getComponentType()) + "[]";
+        this.whereConditions.add(new WhereCondition(
+                field + " " + operator + " CAST(:" + paramName + " AS " + arrayType + ")", "AND"));
+        return param(paramName, values);
+    }
+
+    /**
+     * Tipo de elemento de array de PostgreSQL para una clase Java (text, bigint, integer o uuid).
+     * CRUD lo usa también en el DDL y en los placeholders de columnas con almacenamiento nativo.
+     */
+    static String arrayElementType(Class<?> elementType) {
+        if (elementType == Long.class || elementType == long.class) return "bigint";
+        if (elementType == Integer.class || elementType == int.class) return "integer";
+        if (elementType == java.util.UUID.class) return "uuid";
+        return "text";
+    }
+
+    // Condiciones JSON resueltas en la base de datos
+    // PostgreSQL: column @> CAST(:p AS jsonb) (usa el índice GIN)
+    // MySQL: JSON_CONTAINS(column, CAST(:p AS JSON))
+    public SqlBuilder whereJsonContains(String column, String paramName, Object fragment) {
+        String condition = dialect == CRUD.Dialect.POSTGRESQL
+                ? column + " @> CAST(:" + paramName + " AS jsonb)"
+                : "JSON_CONTAINS(" + column + ", CAST(:" + paramName + " AS JSON))";
+        this.whereConditions.add(new WhereCondition(condition, "AND"));
+        return param(paramName, toJson(fragment));
+    }
+
+    // Igualdad sobre una ruta "a.b.c" comparada como texto
+    // PostgreSQL: column #>> '{a,b,c}' = :p   MySQL: JSON_UNQUOTE(JSON_EXTRACT(column, '$.a.b.c')) = :p
+    public SqlBuilder whereJsonPathEquals(String column, String path, String paramName, Object value) {
+        String condition = jsonPathText(dialect, column, path) + " = :" + paramName;
+        this.whereConditions.add(new WhereCondition(condition, "AND"));
+        return param(paramName, value == null ? null : value.toString());
+    }
+
+    /**
+     * Expresión SQL que extrae como texto el valor de una ruta JSON "a.b.c".
+     * Se usa tanto en las condiciones como en las sugerencias de índices, para que
+     * la expresión indexada coincida exactamente con la consultada.
+     */
+    static String jsonPathText(CRUD.Dialect dialect, String column, String path) {
+        String[] segments = path.split("\\.");
+        for (String segment : segments) {
+            if (!JSON_PATH_SEGMENT.matcher(segment).matches()) {
+                throw new IllegalArgumentException("Invalid JSON path: " + path);
+            }
+        }
+        if (dialect == CRUD.Dialect.POSTGRESQL) {
+            return segments.length == 1
+                    ? "(" + column + " ->> '" + path + "')"
+                    : "(" + column + " #>> '{" + String.join(",", segments) + "}')";
+        }
+        return "JSON_UNQUOTE(JSON_EXTRACT(" + column + ", '$." + path + "'))";
+    }
+
+    private static String toJson(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Error serializing JSON value", e);
+        }
+    }
+
     // GROUP BY
     public SqlBuilder groupBy(String... fields) {
         this.groupByFields.addAll(Arrays.asList(fields));
@@ -354,6 +448,18 @@ public class SqlBuilder {
         return this;
     }
 
+    // Bloqueo de filas (PostgreSQL y MySQL 8): FOR UPDATE [SKIP LOCKED], siempre al final
+    public SqlBuilder forUpdate() {
+        this.forUpdate = true;
+        return this;
+    }
+
+    public SqlBuilder forUpdateSkipLocked() {
+        this.forUpdate = true;
+        this.skipLocked = true;
+        return this;
+    }
+
     // Parámetros para JDBI
     public SqlBuilder param(String name, Object value) {
         this.parameters.put(name, value);
@@ -448,6 +554,14 @@ public class SqlBuilder {
             sql.append(" OFFSET ").append(offsetValue);
         }
 
+        // FOR UPDATE
+        if (forUpdate) {
+            sql.append(" FOR UPDATE");
+            if (skipLocked) {
+                sql.append(" SKIP LOCKED");
+            }
+        }
+
         return sql.toString();
     }
 
@@ -472,7 +586,9 @@ public class SqlBuilder {
     // Clase para construcción de consultas UPDATE
     public static class UpdateBuilder {
         private String table;
-        private final Map<String, Object> setValues = new HashMap<>();
+        private final Map<String, Object> setValues = new LinkedHashMap<>();
+        // Asignaciones con una expresión SQL (p. ej. "stock = stock - :qty"); sus parámetros van en param()
+        private final Map<String, String> setExpressions = new LinkedHashMap<>();
         private final List<WhereCondition> whereConditions = new ArrayList<>();
         private final Map<String, Object> parameters = new HashMap<>();
 
@@ -494,6 +610,11 @@ public class SqlBuilder {
             return this;
         }
 
+        public UpdateBuilder setExpression(String field, String expression) {
+            setExpressions.put(field, expression);
+            return this;
+        }
+
         public UpdateBuilder where(String condition) {
             whereConditions.add(new WhereCondition(condition, "AND"));
             return this;
@@ -522,8 +643,9 @@ public class SqlBuilder {
         public String build() {
             StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
 
-            sql.append(setValues.keySet().stream()
-                    .map(field -> field + " = :" + field)
+            sql.append(Stream.concat(
+                            setValues.keySet().stream().map(field -> field + " = :" + field),
+                            setExpressions.entrySet().stream().map(e -> e.getKey() + " = " + e.getValue()))
                     .collect(Collectors.joining(", ")));
 
             if (!whereConditions.isEmpty()) {
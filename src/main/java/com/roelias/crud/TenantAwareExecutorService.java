@@ -0,0 +1,53 @@
+package com.roelias.crud;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorService que ejecuta cada tarea con el tenant del hilo que la envió.
+ * <p>
+ * submit, invokeAll e invokeAny pasan por {@link #execute}, que captura el tenant al enviar;
+ * el hilo que ejecuta queda sin tenant al terminar, así que no hay fugas entre tareas.
+ * </p>
+ */
+public class TenantAwareExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    public TenantAwareExecutorService(ExecutorService delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(TenantContext.wrap(command));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,171 @@
+package com.roelias.crud;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.roelias.crud.Exceptions.TenantException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Mantiene los tenants de un pool sincronizados con un archivo JSON local.
+ * <p>
+ * El archivo es un arreglo de objetos con tenantId, jdbcUrl, username, password, driverClassName y,
+ * opcionalmente, schema. Al cambiar el archivo se aplica cada tenant modificado con
+ * {@link TenantConnectionPool#replaceConnection}, se agregan los nuevos y se retiran con
+ * {@link TenantConnectionPool#retireConnection} los que este archivo había cargado y ya no aparecen,
+ * de modo que el trabajo en curso de ninguno falla por el cambio. Si el archivo no se puede leer (p. ej. escritura a medias)
+ * se conserva la configuración vigente.
+ * </p>
+ *
+ * <pre>{@code
+ * TenantConfigWatcher watcher = new TenantConfigWatcher(pool, Path.of("/etc/app/tenants.json"));
+ * watcher.start();   // carga inicial y observación del archivo
+ * ...
+ * watcher.close();
+ * }</pre>
+ */
+public class TenantConfigWatcher implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(TenantConfigWatcher.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Agrupa las varias notificaciones que genera un solo guardado
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final TenantConnectionPool<?> pool;
+    private final Path file;
+    private final Set<String> managedTenants = new HashSet<>();
+    private WatchService watchService;
+    private Thread watcher;
+
+    public TenantConfigWatcher(TenantConnectionPool<?> pool, Path file) {
+        this.pool = Objects.requireNonNull(pool);
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * Carga el archivo y empieza a observarlo
+     *
+     * @throws TenantException si la carga inicial falla
+     */
+    public synchronized void start() {
+        if (watcher != null) {
+            return;
+        }
+        reload();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new TenantException("Could not watch tenant configuration file " + file, e);
+        }
+        watcher = new Thread(this::watch, "tenant-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(DEBOUNCE_MILLIS);
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Keeping current tenant configuration: " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close()
+        }
+    }
+
+    /**
+     * Vuelve a leer el archivo y aplica las diferencias
+     *
+     * @throws TenantException si el archivo no se puede leer o es inválido; no se aplica ningún cambio
+     */
+    public synchronized void reload() {
+        Map<String, TenantConnection> configs = read();
+        for (TenantConnection config : configs.values()) {
+            try {
+                pool.replaceConnection(config);
+            } catch (TenantException e) {
+                LOGGER.log(System.Logger.Level.WARNING, e.getMessage(), e.getCause());
+            }
+        }
+        for (String tenantId : managedTenants) {
+            if (!configs.containsKey(tenantId)) {
+                pool.retireConnection(tenantId);
+            }
+        }
+        managedTenants.clear();
+        managedTenants.addAll(configs.keySet());
+    }
+
+    private Map<String, TenantConnection> read() {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(file.toFile());
+        } catch (IOException e) {
+            throw new TenantException("Could not read tenant configuration file " + file, e);
+        }
+        if (root == null || !root.isArray()) {
+            throw new TenantException("Tenant configuration file must contain a JSON array: " + file);
+        }
+        Map<String, TenantConnection> configs = new LinkedHashMap<>();
+        for (JsonNode node : root) {
+            TenantConnection config = new TenantConnection(
+                    required(node, "tenantId"),
+                    required(node, "jdbcUrl"),
+                    required(node, "username"),
+                    required(node, "password"),
+                    required(node, "driverClassName"),
+                    node.hasNonNull("schema") ? node.get("schema").asText() : null);
+            configs.put(config.getTenantId(), config);
+        }
+        return configs;
+    }
+
+    private String required(JsonNode node, String field) {
+        if (!node.hasNonNull(field)) {
+            String tenant = node.hasNonNull("tenantId") ? " for tenant " + node.get("tenantId").asText() : "";
+            throw new TenantException("Missing '" + field + "'" + tenant + " in tenant configuration file " + file);
+        }
+        return node.get(field).asText();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher == null) {
+            return;
+        }
+        watcher.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Ya no se observa el archivo
+        }
+        watcher = null;
+    }
+}
@@ -8,14 +8,25 @@ public class TenantConnection {
     private final String username;
     private final String password;
     private final String driverClassName;
+    private final String schema;
 
     public TenantConnection(String tenantId, String jdbcUrl, String username,
                             String password, String driverClassName) {
+        this(tenantId, jdbcUrl, username, password, driverClassName, null);
+    }
+
+    /**
+     * Tenant que vive en un schema (PostgreSQL) o base de datos (MySQL) de un servidor compartido.
+     * Los tenants con schema y mismo jdbcUrl/credenciales comparten un único pool físico.
+     */
+    public TenantConnection(String tenantId, String jdbcUrl, String username,
+                            String password, String driverClassName, String schema) {
         this.tenantId = Objects.requireNonNull(tenantId, "tenantId cannot be null");
         this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl cannot be null");
         this.username = Objects.requireNonNull(username, "username cannot be null");
         this.password = Objects.requireNonNull(password, "password cannot be null");
         this.driverClassName = Objects.requireNonNull(driverClassName, "driverClassName cannot be null");
+        this.schema = schema;
     }
 
     // Getters (inmutabilidad)
@@ -24,6 +35,25 @@ public class TenantConnection {
     public String getUsername() { return username; }
     public String getPassword() { return password; }
     public String getDriverClassName() { return driverClassName; }
+    public String getSchema() { return schema; }
+
+    public boolean hasSchema() {
+        return schema != null;
+    }
+
+    /**
+     * true si ambas configuraciones abren las mismas conexiones (ignora el tenantId)
+     */
+    public boolean sameSettings(TenantConnection other) {
+        return serverKey().equals(other.serverKey()) && Objects.equals(schema, other.schema);
+    }
+
+    /**
+     * Identidad del servidor: tenants con la misma clave pueden compartir conexiones físicas
+     */
+    String serverKey() {
+        return driverClassName + '\n' + jdbcUrl + '\n' + username + '\n' + password;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -45,6 +75,7 @@ public class TenantConnection {
                 ", jdbcUrl='" + jdbcUrl + '\'' +
                 ", username='" + username + '\'' +
                 ", driverClassName='" + driverClassName + '\'' +
+                (schema != null ? ", schema='" + schema + '\'' : "") +
                 '}';
     }
 }
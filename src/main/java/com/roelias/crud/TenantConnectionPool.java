@@ -1,26 +1,42 @@
 package com.roelias.crud;
 
+import com.roelias.crud.Exceptions.TenantNotFoundException;
+
 import java.util.Optional;
 import java.util.Set;
 
 public interface TenantConnectionPool<T> {
     /**
-     * Agrega una conexión para un tenant específico
+     * Registra la configuración de un tenant; la conexión se crea en el primer acceso
      */
     void addConnection(TenantConnection connection);
 
+    /**
+     * Reemplaza la configuración de un tenant sin cortar el trabajo en curso
+     */
+    default void replaceConnection(TenantConnection connection) {
+        addConnection(connection);
+    }
+
     /**
      * Obtiene la conexión para el tenant actual
      */
     Optional<T> getConnection();
 
     /**
-     * Obtiene la conexión para un tenant específico
+     * Obtiene la conexión para un tenant específico, creándola si aún no existe
      */
     Optional<T> getConnection(String tenantId);
 
     /**
-     * Verifica si existe conexión para un tenant
+     * Obtiene la conexión de un tenant o lanza TenantNotFoundException si no está configurado
+     */
+    default T getRequiredConnection(String tenantId) {
+        return getConnection(tenantId).orElseThrow(() -> new TenantNotFoundException(tenantId));
+    }
+
+    /**
+     * Verifica si el tenant está configurado
      */
     boolean hasConnection(String tenantId);
 
@@ -29,11 +45,26 @@ public interface TenantConnectionPool<T> {
      */
     void removeConnection(String tenantId);
 
+    /**
+     * Remueve un tenant sin cortar el trabajo en curso: su conexión se cierra tras el periodo de
+     * drenaje, como al reemplazarla
+     */
+    default void retireConnection(String tenantId) {
+        removeConnection(tenantId);
+    }
+
     /**
      * Obtiene todos los tenantIds configurados
      */
     Set<String> getConfiguredTenants();
 
+    /**
+     * Prepara una ejecución en paralelo sobre todos los tenants o un subconjunto
+     */
+    default TenantFanOut<T> fanOut() {
+        return new TenantFanOut<>(this);
+    }
+
     /**
      * Limpia todas las conexiones
      */
@@ -1,5 +1,26 @@
 package com.roelias.crud;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tenant del hilo actual.
+ * <p>
+ * Preferir {@link #runAs}/{@link #callAs} a setTenantId/clear: el tenant solo vale durante la
+ * tarea y el anterior se restaura al terminar, aunque falle. Para ejecutar en otros hilos usar
+ * {@link #wrap(Runnable)} o los executors de {@link #wrap(ExecutorService)}, que capturan el tenant
+ * al enviar la tarea.
+ * </p>
+ *
+ * <pre>{@code
+ * ExecutorService executor = TenantContext.wrap(Executors.newVirtualThreadPerTaskExecutor());
+ *
+ * TenantContext.runAs("acme", () -> {
+ *     CompletableFuture.supplyAsync(users::findAll, executor); // también corre como "acme"
+ * });
+ * }</pre>
+ */
 public class TenantContext {
 
     private static final ThreadLocal<String> CURRENT_TENANT = new ThreadLocal<>();
@@ -23,4 +44,68 @@ public class TenantContext {
     public static boolean hasTenant() {
         return CURRENT_TENANT.get() != null;
     }
+
+    /**
+     * Ejecuta la tarea con el tenant indicado y restaura el anterior al terminar
+     */
+    public static void runAs(String tenantId, Runnable task) {
+        String previous = CURRENT_TENANT.get();
+        CURRENT_TENANT.set(tenantId);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Como {@link #runAs} pero devuelve el resultado de la tarea
+     */
+    public static <V> V callAs(String tenantId, Callable<V> task) throws Exception {
+        String previous = CURRENT_TENANT.get();
+        CURRENT_TENANT.set(tenantId);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT_TENANT.remove();
+        } else {
+            CURRENT_TENANT.set(previous);
+        }
+    }
+
+    /**
+     * Captura el tenant actual para ejecutar la tarea con él en otro hilo
+     */
+    public static Runnable wrap(Runnable task) {
+        String tenantId = CURRENT_TENANT.get();
+        return () -> runAs(tenantId, task);
+    }
+
+    /**
+     * Captura el tenant actual para ejecutar la tarea con él en otro hilo
+     */
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        String tenantId = CURRENT_TENANT.get();
+        return () -> callAs(tenantId, task);
+    }
+
+    /**
+     * Executor que propaga el tenant de quien envía cada tarea (útil con CompletableFuture)
+     */
+    public static Executor wrap(Executor executor) {
+        return command -> executor.execute(wrap(command));
+    }
+
+    /**
+     * ExecutorService que propaga el tenant de quien envía cada tarea
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        return new TenantAwareExecutorService(executor);
+    }
 }
@@ -0,0 +1,564 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Pool acotado de conexiones JDBC para un tenant.
+ * <p>
+ * Limita las conexiones prestadas a {@link #getMaxSize()} con un semáforo justo
+ * (los que esperan se atienden en orden) y un tiempo máximo de espera. Valida las conexiones
+ * al prestarlas, retira las que superan su vida máxima o quedan ociosas y reporta posibles
+ * fugas. Las conexiones entregadas son proxies: {@code close()} las devuelve al pool.
+ * </p>
+ * <p>
+ * Con {@link #getSchemaConnection(String)} varios tenants comparten el pool: al prestar se cambia
+ * el schema (search_path en PostgreSQL, base de datos en MySQL) solo si la conexión no lo tiene ya.
+ * Si el préstamo lleva el {@link TenantUsage} del tenant, primero se reserva su cupo propio.
+ * </p>
+ */
+public class TenantDataSource implements DataSource, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(TenantDataSource.class.getName());
+
+    private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "tenant-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TenantConnection config;
+    private final PoolSettings settings;
+    private final ResizableSemaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger schemaSwitches = new AtomicInteger();
+    private final boolean postgres;
+    // Se asigna en create(), una vez construido el pool
+    private ScheduledFuture<?> housekeeping;
+    private volatile boolean closed;
+    private volatile int maxSize;
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    private TenantDataSource(TenantConnection config, PoolSettings settings) {
+        this.config = config;
+        this.settings = settings;
+        this.maxSize = settings.getMaxSize();
+        this.permits = new ResizableSemaphore(maxSize);
+        this.postgres = config.getJdbcUrl().startsWith("jdbc:postgresql:");
+        try {
+            Class.forName(config.getDriverClassName());
+        } catch (ClassNotFoundException e) {
+            throw new TenantException("JDBC driver not found: " + config.getDriverClassName(), e);
+        }
+    }
+
+    /**
+     * Crea el pool y programa su tarea de mantenimiento.
+     * <p>
+     * La tarea se programa aquí y no en el constructor para no publicar {@code this} a otro hilo
+     * antes de que el pool esté construido.
+     * </p>
+     *
+     * @throws TenantException si el driver JDBC no está disponible
+     */
+    public static TenantDataSource create(TenantConnection config, PoolSettings settings) {
+        TenantDataSource dataSource = new TenantDataSource(config, settings);
+        long interval = settings.getHousekeepingInterval().toMillis();
+        dataSource.housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(dataSource::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+        return dataSource;
+    }
+
+    /**
+     * Semáforo justo cuyo número de permisos puede reducirse
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void shrink(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+    /**
+     * Conexión física con sus tiempos de uso
+     */
+    private static final class PooledConnection {
+        final Connection raw;
+        final long createdAt = System.nanoTime();
+        volatile long lastUsed = createdAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        // Schema activo en la sesión; null si es desconocido
+        volatile String currentSchema;
+        // Tenant al que está prestada cuando el pool es compartido
+        volatile TenantUsage usage;
+        // Estado de sesión al abrirla, que se restaura al devolverla si el usuario lo cambió
+        final boolean readOnly;
+        final int isolation;
+        volatile boolean sessionChanged;
+
+        PooledConnection(Connection raw, boolean readOnly, int isolation) {
+            this.raw = raw;
+            this.readOnly = readOnly;
+            this.isolation = isolation;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getSchemaConnection(null);
+    }
+
+    /**
+     * Presta una conexión con el schema indicado activo; null la entrega sin cambiar de schema
+     */
+    public Connection getSchemaConnection(String schema) throws SQLException {
+        return getSchemaConnection(schema, null);
+    }
+
+    /**
+     * Como {@link #getSchemaConnection(String)} registrando el préstamo en el uso del tenant
+     */
+    Connection getSchemaConnection(String schema, TenantUsage usage) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool closed for tenant " + config.getTenantId());
+        }
+        long timeout = settings.getAcquireTimeout().toMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        boolean reserved = false;
+        try {
+            if (usage != null) {
+                if (!usage.reserve(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTimeoutException("Timed out after " + timeout + " ms waiting for a connection for tenant "
+                            + usage.getTenantId() + " (active=" + usage.getActiveConnections()
+                            + ", max=" + usage.getMaxConnections() + ")");
+                }
+                reserved = true;
+            }
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + timeout + " ms waiting for a connection for tenant "
+                        + config.getTenantId() + " (active=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        } catch (SQLException e) {
+            if (reserved) {
+                usage.cancelReservation();
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            if (reserved) {
+                usage.cancelReservation();
+            }
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        PooledConnection pooled;
+        try {
+            pooled = borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            if (reserved) {
+                usage.cancelReservation();
+            }
+            throw e;
+        }
+        if (usage != null) {
+            // Desde aquí release() devuelve el cupo del tenant junto con la conexión
+            pooled.usage = usage;
+            usage.borrowed();
+        }
+        if (schema != null && !schema.equals(pooled.currentSchema)) {
+            try {
+                switchSchema(pooled, schema);
+            } catch (SQLException | RuntimeException e) {
+                pooled.broken = true;
+                release(pooled);
+                throw e;
+            }
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandle(pooled));
+    }
+
+    private void switchSchema(PooledConnection pooled, String schema) throws SQLException {
+        pooled.currentSchema = null;
+        if (postgres) {
+            pooled.raw.setSchema(schema);
+        } else {
+            pooled.raw.setCatalog(schema);
+        }
+        pooled.currentSchema = schema;
+        schemaSwitches.incrementAndGet();
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        long now = System.nanoTime();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isExpired(pooled, now)) {
+                destroy(pooled);
+            } else if (now - pooled.lastUsed > settings.getValidationInterval().toNanos() && !isValid(pooled)) {
+                destroy(pooled);
+            } else {
+                break;
+            }
+        }
+        if (pooled == null) {
+            pooled = open();
+        }
+        pooled.borrowedAt = System.nanoTime();
+        pooled.leakReported = false;
+        pooled.borrowSite = settings.getLeakDetectionThreshold().isZero() ? null : new Throwable("Connection borrowed here");
+        borrowed.add(pooled);
+        return pooled;
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            borrowed.remove(pooled);
+            TenantUsage usage = pooled.usage;
+            if (usage != null) {
+                pooled.usage = null;
+                usage.returned();
+            }
+            if (closed || pooled.broken || isExpired(pooled, System.nanoTime()) || !reset(pooled)) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsed = System.nanoTime();
+                park(pooled, true);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Deja la conexión como se abrió: sin transacción abierta, en autocommit y con el readOnly y el
+     * aislamiento originales, para que el siguiente préstamo no herede la sesión del anterior
+     */
+    private boolean reset(PooledConnection pooled) {
+        try {
+            if (!pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            if (pooled.sessionChanged) {
+                pooled.raw.setReadOnly(pooled.readOnly);
+                pooled.raw.setTransactionIsolation(pooled.isolation);
+                pooled.sessionChanged = false;
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection raw = DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(), config.getPassword());
+        PooledConnection pooled;
+        try {
+            pooled = new PooledConnection(raw, raw.isReadOnly(), raw.getTransactionIsolation());
+        } catch (SQLException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+        totalConnections.incrementAndGet();
+        return pooled;
+    }
+
+    /**
+     * Deja la conexión ociosa. close() puede vaciar idle entre la comprobación de closed y el
+     * offer: si ocurrió, la conexión se cierra aquí para que no quede abierta en un pool cerrado
+     */
+    private void park(PooledConnection pooled, boolean first) {
+        if (first) {
+            idle.offerFirst(pooled);
+        } else {
+            idle.offerLast(pooled);
+        }
+        if (closed && idle.remove(pooled)) {
+            destroy(pooled);
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.raw.close();
+        } catch (SQLException ignored) {
+            // La conexión ya no es utilizable
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            int seconds = (int) Math.max(1, settings.getValidationTimeout().toSeconds());
+            return pooled.raw.isValid(seconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return !settings.getMaxLifetime().isZero() && now - pooled.createdAt > settings.getMaxLifetime().toNanos();
+    }
+
+    /**
+     * Tarea periódica: retira ociosas y expiradas, reporta fugas y repone minIdle
+     */
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            for (PooledConnection pooled : idle) {
+                boolean idleTooLong = !settings.getIdleTimeout().isZero()
+                        && now - pooled.lastUsed > settings.getIdleTimeout().toNanos()
+                        && totalConnections.get() > settings.getMinIdle();
+                if ((idleTooLong || isExpired(pooled, now)) && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+            if (!settings.getLeakDetectionThreshold().isZero()) {
+                long threshold = settings.getLeakDetectionThreshold().toNanos();
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                        pooled.leakReported = true;
+                        LOGGER.log(System.Logger.Level.WARNING,
+                                "Possible connection leak for tenant " + config.getTenantId() + ": borrowed "
+                                        + TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt) + " ms ago and not returned",
+                                pooled.borrowSite);
+                    }
+                }
+            }
+            fillMinIdle();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Housekeeping failed for tenant " + config.getTenantId(), e);
+        }
+    }
+
+    /**
+     * Chequeo de salud: valida las conexiones ociosas y retira las rotas. Si no queda ninguna
+     * válida abre una de prueba (si hay cupo). Lanza SQLException si el servidor no responde.
+     */
+    public void probe() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool closed for tenant " + config.getTenantId());
+        }
+        boolean healthy = false;
+        for (PooledConnection pooled : new ArrayList<>(idle)) {
+            // Solo se valida la que se logra retirar: las demás ya fueron prestadas
+            if (!idle.remove(pooled)) {
+                continue;
+            }
+            if (isValid(pooled)) {
+                pooled.lastUsed = System.nanoTime();
+                park(pooled, true);
+                healthy = true;
+            } else {
+                destroy(pooled);
+            }
+        }
+        if (healthy || !permits.tryAcquire()) {
+            // Sin cupo libre todas están prestadas y en uso
+            return;
+        }
+        try {
+            PooledConnection pooled = open();
+            if (!isValid(pooled)) {
+                destroy(pooled);
+                throw new SQLException("Connection validation failed for tenant " + config.getTenantId());
+            }
+            park(pooled, true);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Abre conexiones ociosas hasta alcanzar minIdle
+     */
+    protected void fillMinIdle() {
+        while (!closed && totalConnections.get() < settings.getMinIdle() && permits.tryAcquire()) {
+            try {
+                park(open(), false);
+            } catch (SQLException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not open idle connection for tenant " + config.getTenantId(), e);
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Cierra el pool: las ociosas se cierran ya, las prestadas al devolverse
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeping.cancel(false);
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Cambia el máximo de conexiones prestadas; al reducirlo las ya prestadas no se cortan, solo
+     * dejan de prestarse nuevas hasta bajar del nuevo máximo
+     */
+    synchronized void resize(int maxSize) {
+        int delta = maxSize - this.maxSize;
+        this.maxSize = maxSize;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.shrink(-delta);
+        }
+    }
+
+    public TenantConnection getConfig() { return config; }
+    public PoolSettings getSettings() { return settings; }
+    /** Máximo de conexiones prestadas; en un pool compartido, maxSize por cada tenant que lo usa */
+    public int getMaxSize() { return maxSize; }
+    public int getActiveConnections() { return borrowed.size(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getTotalConnections() { return totalConnections.get(); }
+    public int getPendingThreads() { return permits.getQueueLength(); }
+    /** Cambios de schema ejecutados al prestar (los evitados por la caché no cuentan) */
+    public int getSchemaSwitches() { return schemaSwitches.get(); }
+
+    /**
+     * Intercepta close() para devolver la conexión y marca como rota la que falla por errores de conexión
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + config.getTenantId() + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            if ("setSchema".equals(method.getName()) || "setCatalog".equals(method.getName())) {
+                // El usuario cambia el schema por su cuenta: la caché deja de ser fiable
+                pooled.currentSchema = null;
+            } else if ("setReadOnly".equals(method.getName()) || "setTransactionIsolation".equals(method.getName())) {
+                pooled.sessionChanged = true;
+            }
+            try {
+                return method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        pooled.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // DataSource
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Tenant pools use the credentials of their TenantConnection");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <I> I unwrap(Class<I> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,73 @@
+package com.roelias.crud;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * Vista de un tenant sobre un {@link TenantDataSource}, posiblemente compartido: aplica el schema
+ * del tenant y registra su uso
+ */
+final class TenantDataSourceView implements DataSource {
+
+    private final TenantDataSource shared;
+    private final String schema;
+    private final TenantUsage usage;
+
+    TenantDataSourceView(TenantDataSource shared, String schema, TenantUsage usage) {
+        this.shared = shared;
+        this.schema = schema;
+        this.usage = usage;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return shared.getSchemaConnection(schema, usage);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Tenant pools use the credentials of their TenantConnection");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return shared.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        shared.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        shared.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return shared.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <I> I unwrap(Class<I> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return shared.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this) || shared.isWrapperFor(iface);
+    }
+}
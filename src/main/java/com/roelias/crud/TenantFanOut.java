@@ -0,0 +1,212 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * Ejecuta una operación en varios tenants en paralelo.
+ * <p>
+ * Cada tenant corre en un hilo virtual con su {@link TenantContext} activo, así que un {@link CRUD}
+ * con {@link TenantJdbiProvider} funciona sin cambios. Como máximo {@code parallelism} tenants se
+ * ejecutan a la vez; el timeout cuenta desde que el tenant empieza. Los fallos no detienen al resto
+ * y se reportan por tenant en {@link FanOutResult}.
+ * </p>
+ *
+ * <pre>{@code
+ * FanOutResult<List<Order>> result = pool.fanOut()
+ *         .parallelism(32)
+ *         .timeout(Duration.ofSeconds(30))
+ *         .execute((tenantId, jdbi) -> orders.findAll(monthlyQuery));
+ *
+ * List<Order> all = result.merge(list -> list);
+ * result.getFailures().forEach((tenant, error) -> log(tenant, error));
+ * }</pre>
+ */
+public class TenantFanOut<T> {
+
+    /**
+     * Operación a ejecutar para cada tenant
+     */
+    @FunctionalInterface
+    public interface TenantOperation<T, R> {
+        R apply(String tenantId, T connection) throws Exception;
+    }
+
+    private final TenantConnectionPool<T> pool;
+    private Collection<String> tenants;
+    private int parallelism = 16;
+    private Duration timeout = Duration.ZERO;
+
+    public TenantFanOut(TenantConnectionPool<T> pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Limita la ejecución a estos tenants (por defecto todos los configurados)
+     */
+    public TenantFanOut<T> tenants(Collection<String> tenantIds) {
+        this.tenants = new ArrayList<>(tenantIds);
+        return this;
+    }
+
+    /**
+     * Máximo de tenants ejecutándose a la vez
+     */
+    public TenantFanOut<T> parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Tiempo máximo por tenant; al vencer se interrumpe y se reporta como fallo. Duration.ZERO lo desactiva
+     */
+    public TenantFanOut<T> timeout(Duration timeout) {
+        this.timeout = Objects.requireNonNull(timeout);
+        return this;
+    }
+
+    /**
+     * Ejecuta en todos los tenants y devuelve los resultados y fallos
+     */
+    public <R> FanOutResult<R> execute(TenantOperation<T, R> operation) {
+        return run(operation, null);
+    }
+
+    /**
+     * Ejecuta en todos los tenants entregando cada resultado al consumer, en el hilo que llama y en
+     * orden de finalización, sin acumularlos. El resultado devuelto solo contiene los fallos. Si el
+     * consumer lanza una excepción, se cancelan los tenants pendientes y la excepción se propaga.
+     */
+    public <R> FanOutResult<R> stream(TenantOperation<T, R> operation, BiConsumer<String, ? super R> consumer) {
+        return run(operation, Objects.requireNonNull(consumer));
+    }
+
+    private <R> FanOutResult<R> run(TenantOperation<T, R> operation, BiConsumer<String, ? super R> consumer) {
+        long start = System.nanoTime();
+        List<String> targets = new ArrayList<>(tenants != null ? tenants : pool.getConfiguredTenants());
+        Map<String, R> results = new HashMap<>();
+        Map<String, Throwable> failures = new HashMap<>();
+        BlockingQueue<TenantTask<R>> completed = new LinkedBlockingQueue<>();
+        List<TenantTask<R>> tasks = new ArrayList<>(targets.size());
+        Semaphore permits = new Semaphore(parallelism);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        boolean finished = false;
+        try {
+            for (String tenantId : targets) {
+                TenantTask<R> task = new TenantTask<>(tenantId, operation, permits, completed);
+                tasks.add(task);
+                executor.execute(task);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                TenantTask<R> task = completed.take();
+                try {
+                    R result = task.get();
+                    if (consumer != null) {
+                        consumer.accept(task.tenantId, result);
+                    } else {
+                        results.put(task.tenantId, result);
+                    }
+                } catch (CancellationException e) {
+                    failures.put(task.tenantId, new TimeoutException(
+                            "Tenant " + task.tenantId + " did not complete within " + timeout.toMillis() + " ms"));
+                } catch (ExecutionException e) {
+                    failures.put(task.tenantId, e.getCause());
+                }
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TenantException("Interrupted while waiting for tenant fan-out", e);
+        } finally {
+            // Si se sale antes de tiempo (interrupción o un consumer que lanza) nadie leerá el resto:
+            // se cancelan para no dejar consultas corriendo en los tenants
+            if (!finished) {
+                tasks.forEach(task -> task.cancel(true));
+            }
+            executor.shutdown();
+        }
+        return new FanOutResult<>(ordered(targets, results), ordered(targets, failures),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static <V> Map<String, V> ordered(List<String> targets, Map<String, V> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, V> ordered = new LinkedHashMap<>();
+        for (String tenantId : targets) {
+            if (values.containsKey(tenantId)) {
+                ordered.put(tenantId, values.get(tenantId));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Tarea de un tenant: espera turno, arma su timeout y se encola al terminar
+     */
+    private final class TenantTask<R> extends FutureTask<R> {
+        final String tenantId;
+        private final Semaphore permits;
+        private final BlockingQueue<TenantTask<R>> completed;
+
+        TenantTask(String tenantId, TenantOperation<T, R> operation, Semaphore permits, BlockingQueue<TenantTask<R>> completed) {
+            super(() -> TenantContext.callAs(tenantId, () -> operation.apply(tenantId, pool.getRequiredConnection(tenantId))));
+            this.tenantId = tenantId;
+            this.permits = permits;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                cancel(false);
+                return;
+            }
+            ScheduledFuture<?> timer = null;
+            try {
+                if (!timeout.isZero()) {
+                    timer = AbstractConnectionPool.SCHEDULER.schedule(() -> cancel(true), timeout.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                super.run();
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                permits.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            completed.add(this);
+        }
+    }
+}
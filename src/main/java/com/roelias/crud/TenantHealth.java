@@ -0,0 +1,10 @@
+package com.roelias.crud;
+
+/**
+ * Estado de salud de un tenant según el chequeo en segundo plano
+ */
+public enum TenantHealth {
+    HEALTHY,
+    /** Las peticiones fallan de inmediato con TenantUnavailableException hasta que un chequeo tenga éxito */
+    UNHEALTHY
+}
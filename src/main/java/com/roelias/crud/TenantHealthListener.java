@@ -0,0 +1,13 @@
+package com.roelias.crud;
+
+/**
+ * Recibe los cambios de estado de salud de los tenants; se invoca desde el hilo del chequeo
+ */
+@FunctionalInterface
+public interface TenantHealthListener {
+
+    /**
+     * @param cause error del chequeo que marcó el tenant como UNHEALTHY; null al recuperarse
+     */
+    void onStateChange(String tenantId, TenantHealth previous, TenantHealth current, Throwable cause);
+}
@@ -0,0 +1,52 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantContextException;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.Objects;
+
+/**
+ * {@link CRUD.JdbiProvider} que entrega el Jdbi del tenant actual desde un {@link TenantConnectionPool}.
+ * <p>
+ * El Jdbi de cada tenant se crea y configura una sola vez en el pool; cada llamada solo resuelve
+ * el tenant y lo busca en el mapa del pool.
+ * </p>
+ *
+ * <pre>{@code
+ * CRUD<User, Long> users = new CRUD<>(User.class, Long.class);
+ * users.useProvider(new TenantJdbiProvider(pool));
+ *
+ * TenantContext.setTenantId("acme");
+ * users.findAll(); // usa el Jdbi de "acme"
+ * }</pre>
+ */
+public class TenantJdbiProvider implements CRUD.JdbiProvider {
+
+    private final TenantConnectionPool<Jdbi> pool;
+    private final TenantResolver resolver;
+
+    /**
+     * Resuelve el tenant desde {@link TenantContext}
+     */
+    public TenantJdbiProvider(TenantConnectionPool<Jdbi> pool) {
+        this(pool, TenantContext::getTenantId);
+    }
+
+    public TenantJdbiProvider(TenantConnectionPool<Jdbi> pool, TenantResolver resolver) {
+        this.pool = Objects.requireNonNull(pool);
+        this.resolver = Objects.requireNonNull(resolver);
+    }
+
+    /**
+     * @throws TenantContextException si no hay tenant en el contexto actual
+     * @throws com.roelias.crud.Exceptions.TenantNotFoundException si el tenant no está configurado en el pool
+     */
+    @Override
+    public Jdbi getJdbi() {
+        String tenantId = resolver.resolveTenantId();
+        if (tenantId == null) {
+            throw new TenantContextException();
+        }
+        return pool.getRequiredConnection(tenantId);
+    }
+}
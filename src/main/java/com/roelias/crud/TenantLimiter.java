@@ -0,0 +1,202 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+import com.roelias.crud.Exceptions.TenantLimitExceededException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bulkhead y rate limit por tenant, para que un tenant ruidoso no agote los recursos compartidos.
+ * <p>
+ * La concurrencia se limita con un semáforo por tenant y la tasa con un token bucket (GCRA) sobre un
+ * único AtomicLong, sin locks en el camino rápido. Con {@link JdbiConnectionPool#setLimiter} cada
+ * conexión que abre un Jdbi de tenant cuenta como una operación; también puede usarse directamente
+ * con {@link #call}.
+ * </p>
+ *
+ * <pre>{@code
+ * TenantLimiter limiter = new TenantLimiter(TenantLimits.builder().maxConcurrent(8).build());
+ * limiter.setLimits("big-customer", TenantLimits.builder().maxConcurrent(2).ratePerSecond(20).build());
+ * pool.setLimiter(limiter);
+ * }</pre>
+ */
+public class TenantLimiter {
+
+    private final TenantLimits defaults;
+    private final Map<String, TenantLimits> overrides = new ConcurrentHashMap<>();
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public TenantLimiter(TenantLimits defaults) {
+        this.defaults = Objects.requireNonNull(defaults);
+    }
+
+    /**
+     * Límites específicos de un tenant; aplican a las operaciones que empiecen desde ahora
+     */
+    public void setLimits(String tenantId, TenantLimits limits) {
+        overrides.put(tenantId, Objects.requireNonNull(limits));
+        states.computeIfPresent(tenantId, (id, previous) -> {
+            // Los permisos vigentes se devuelven al estado anterior; se conserva el contador de rechazos
+            State state = new State(limits);
+            state.rejections.add(previous.rejections.sum());
+            return state;
+        });
+    }
+
+    public TenantLimits getLimits(String tenantId) {
+        return overrides.getOrDefault(tenantId, defaults);
+    }
+
+    /**
+     * Reserva cupo para una operación del tenant; cerrar el permiso lo libera
+     *
+     * @throws TenantLimitExceededException si no hay cupo (de inmediato con FAIL_FAST o tras queueTimeout con QUEUE)
+     */
+    public Permit acquire(String tenantId) {
+        State state = states.get(tenantId);
+        if (state == null) {
+            state = states.computeIfAbsent(tenantId, id -> new State(getLimits(id)));
+        }
+        state.acquireRate(tenantId);
+        try {
+            state.acquireConcurrency(tenantId);
+        } catch (RuntimeException e) {
+            // La operación no se ejecuta: el hueco de tasa reservado vuelve al bucket
+            state.refundRate();
+            throw e;
+        }
+        return new Permit(state);
+    }
+
+    /**
+     * Ejecuta la tarea dentro de los límites del tenant
+     */
+    public <R> R call(String tenantId, Callable<R> task) throws Exception {
+        Permit permit = acquire(tenantId);
+        try {
+            return task.call();
+        } finally {
+            permit.close();
+        }
+    }
+
+    public long getRejections(String tenantId) {
+        State state = states.get(tenantId);
+        return state == null ? 0 : state.rejections.sum();
+    }
+
+    /**
+     * Rechazos acumulados por tenant
+     */
+    public Map<String, Long> getRejections() {
+        Map<String, Long> rejections = new HashMap<>();
+        states.forEach((tenantId, state) -> rejections.put(tenantId, state.rejections.sum()));
+        return rejections;
+    }
+
+    /**
+     * Operaciones en curso del tenant
+     */
+    public int getInFlight(String tenantId) {
+        State state = states.get(tenantId);
+        return state == null || state.bulkhead == null ? 0 : state.limits.getMaxConcurrent() - state.bulkhead.availablePermits();
+    }
+
+    /**
+     * Cupo reservado; close() lo devuelve una sola vez
+     */
+    public static final class Permit implements AutoCloseable {
+        private final State state;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(State state) {
+            this.state = state;
+        }
+
+        @Override
+        public void close() {
+            if (state.bulkhead != null && released.compareAndSet(false, true)) {
+                state.bulkhead.release();
+            }
+        }
+    }
+
+    private static final class State {
+        final TenantLimits limits;
+        final Semaphore bulkhead;
+        final LongAdder rejections = new LongAdder();
+        // GCRA: instante teórico (nanoTime) en que el bucket vuelve a estar vacío
+        final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        final long interval;
+        final long tolerance;
+
+        State(TenantLimits limits) {
+            this.limits = limits;
+            this.bulkhead = limits.getMaxConcurrent() > 0 ? new Semaphore(limits.getMaxConcurrent(), true) : null;
+            this.interval = limits.getRatePerSecond() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / limits.getRatePerSecond()) : 0;
+            this.tolerance = interval * limits.getBurst();
+        }
+
+        void acquireConcurrency(String tenantId) {
+            if (bulkhead == null || bulkhead.tryAcquire()) {
+                return;
+            }
+            if (limits.getPolicy() == TenantLimits.Policy.QUEUE) {
+                try {
+                    if (bulkhead.tryAcquire(limits.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TenantException("Interrupted while waiting for tenant " + tenantId, e);
+                }
+            }
+            rejections.increment();
+            throw new TenantLimitExceededException(tenantId, limits.getMaxConcurrent() + " concurrent operations in progress");
+        }
+
+        void acquireRate(String tenantId) {
+            if (interval == 0) {
+                return;
+            }
+            long maxWait = limits.getPolicy() == TenantLimits.Policy.QUEUE ? limits.getQueueTimeout().toNanos() : 0;
+            while (true) {
+                long now = System.nanoTime();
+                long arrival = theoreticalArrival.get();
+                long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+                long next = start + interval;
+                long wait = next - now - tolerance;
+                if (wait > maxWait) {
+                    rejections.increment();
+                    throw new TenantLimitExceededException(tenantId, "rate of " + limits.getRatePerSecond() + " operations per second exceeded");
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    long deadline = now + wait;
+                    for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+                        LockSupport.parkNanos(remaining);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Deshace una reserva de acquireRate; las reservas posteriores siguen siendo válidas
+         */
+        void refundRate() {
+            if (interval != 0) {
+                theoreticalArrival.addAndGet(-interval);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.roelias.crud;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Límites inmutables de concurrencia y tasa para un tenant.
+ *
+ * <pre>{@code
+ * TenantLimits limits = TenantLimits.builder()
+ *         .maxConcurrent(4)                      // operaciones simultáneas
+ *         .ratePerSecond(50).burst(20)           // token bucket
+ *         .policy(TenantLimits.Policy.QUEUE)
+ *         .queueTimeout(Duration.ofMillis(200))
+ *         .build();
+ * }</pre>
+ */
+public class TenantLimits {
+
+    /**
+     * Qué hacer cuando no hay cupo: esperar hasta queueTimeout o rechazar de inmediato
+     */
+    public enum Policy { QUEUE, FAIL_FAST }
+
+    private final int maxConcurrent;
+    private final double ratePerSecond;
+    private final int burst;
+    private final Policy policy;
+    private final Duration queueTimeout;
+
+    private TenantLimits(Builder builder) {
+        if (builder.maxConcurrent < 0) {
+            throw new IllegalArgumentException("maxConcurrent cannot be negative");
+        }
+        if (builder.ratePerSecond < 0) {
+            throw new IllegalArgumentException("ratePerSecond cannot be negative");
+        }
+        if (builder.burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1");
+        }
+        this.maxConcurrent = builder.maxConcurrent;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.burst = builder.burst;
+        this.policy = builder.policy;
+        this.queueTimeout = builder.queueTimeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Sin límites
+     */
+    public static TenantLimits unlimited() {
+        return builder().build();
+    }
+
+    // Getters (inmutabilidad)
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public double getRatePerSecond() { return ratePerSecond; }
+    public int getBurst() { return burst; }
+    public Policy getPolicy() { return policy; }
+    public Duration getQueueTimeout() { return queueTimeout; }
+
+    @Override
+    public String toString() {
+        return "TenantLimits{" +
+                "maxConcurrent=" + maxConcurrent +
+                ", ratePerSecond=" + ratePerSecond +
+                ", burst=" + burst +
+                ", policy=" + policy +
+                ", queueTimeout=" + queueTimeout +
+                '}';
+    }
+
+    public static class Builder {
+        private int maxConcurrent = 0;
+        private double ratePerSecond = 0;
+        private int burst = 1;
+        private Policy policy = Policy.QUEUE;
+        private Duration queueTimeout = Duration.ofSeconds(1);
+
+        private Builder() {}
+
+        /**
+         * Operaciones simultáneas por tenant. 0 = sin límite
+         */
+        public Builder maxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        /**
+         * Operaciones por segundo sostenidas. 0 = sin límite
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        /**
+         * Operaciones que pueden iniciarse de golpe antes de aplicar la tasa
+         */
+        public Builder burst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder policy(Policy policy) {
+            this.policy = Objects.requireNonNull(policy);
+            return this;
+        }
+
+        /**
+         * Espera máxima por cupo con Policy.QUEUE
+         */
+        public Builder queueTimeout(Duration queueTimeout) {
+            this.queueTimeout = Objects.requireNonNull(queueTimeout);
+            return this;
+        }
+
+        public TenantLimits build() {
+            return new TenantLimits(this);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.roelias.crud;
+
+/**
+ * Instantánea de las métricas de rotación de un {@link AbstractConnectionPool}.
+ */
+public class TenantPoolMetrics {
+    private final int configuredTenants;
+    private final int activeTenants;
+    private final long created;
+    private final long evictedIdle;
+    private final long evictedCapacity;
+    private final long removed;
+    private final long replaced;
+    private final int unhealthyTenants;
+    private final long healthChecks;
+    private final long failedHealthChecks;
+    private final long healthStateChanges;
+
+    public TenantPoolMetrics(int configuredTenants, int activeTenants, long created,
+                             long evictedIdle, long evictedCapacity, long removed, long replaced,
+                             int unhealthyTenants, long healthChecks, long failedHealthChecks, long healthStateChanges) {
+        this.configuredTenants = configuredTenants;
+        this.activeTenants = activeTenants;
+        this.created = created;
+        this.evictedIdle = evictedIdle;
+        this.evictedCapacity = evictedCapacity;
+        this.removed = removed;
+        this.replaced = replaced;
+        this.unhealthyTenants = unhealthyTenants;
+        this.healthChecks = healthChecks;
+        this.failedHealthChecks = failedHealthChecks;
+        this.healthStateChanges = healthStateChanges;
+    }
+
+    /** Tenants registrados con addConnection */
+    public int getConfiguredTenants() { return configuredTenants; }
+    /** Tenants con objeto de conexión abierto */
+    public int getActiveTenants() { return activeTenants; }
+    /** Objetos de conexión creados desde el inicio (incluye recreaciones tras expulsión) */
+    public long getCreated() { return created; }
+    /** Expulsados por inactividad */
+    public long getEvictedIdle() { return evictedIdle; }
+    /** Expulsados por superar el máximo de tenants activos (LRU) */
+    public long getEvictedCapacity() { return evictedCapacity; }
+    /** Cerrados por removeConnection o clear */
+    public long getRemoved() { return removed; }
+    /** Reemplazados en caliente por un cambio de configuración */
+    public long getReplaced() { return replaced; }
+    /** Tenants marcados como UNHEALTHY */
+    public int getUnhealthyTenants() { return unhealthyTenants; }
+    /** Chequeos de salud ejecutados */
+    public long getHealthChecks() { return healthChecks; }
+    /** Chequeos de salud fallidos */
+    public long getFailedHealthChecks() { return failedHealthChecks; }
+    /** Transiciones HEALTHY/UNHEALTHY */
+    public long getHealthStateChanges() { return healthStateChanges; }
+
+    @Override
+    public String toString() {
+        return "TenantPoolMetrics{" +
+                "configuredTenants=" + configuredTenants +
+                ", activeTenants=" + activeTenants +
+                ", created=" + created +
+                ", evictedIdle=" + evictedIdle +
+                ", evictedCapacity=" + evictedCapacity +
+                ", removed=" + removed +
+                ", replaced=" + replaced +
+                ", unhealthyTenants=" + unhealthyTenants +
+                ", healthChecks=" + healthChecks +
+                ", failedHealthChecks=" + failedHealthChecks +
+                ", healthStateChanges=" + healthStateChanges +
+                '}';
+    }
+}
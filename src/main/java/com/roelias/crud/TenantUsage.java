@@ -0,0 +1,71 @@
+package com.roelias.crud;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Uso de conexiones de un tenant, aunque su pool físico sea compartido con otros tenants.
+ * <p>
+ * También limita las conexiones que el tenant tiene prestadas a la vez, para que en un pool
+ * compartido un tenant ocupado no agote las de los demás.
+ * </p>
+ */
+public class TenantUsage {
+    private final String tenantId;
+    private final int maxConnections;
+    private final Semaphore permits;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+
+    TenantUsage(String tenantId, int maxConnections) {
+        this.tenantId = tenantId;
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Reserva cupo del tenant para un préstamo; false si no lo obtiene a tiempo
+     */
+    boolean reserve(long timeout, TimeUnit unit) throws InterruptedException {
+        return permits.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * Devuelve una reserva que no llegó a préstamo
+     */
+    void cancelReservation() {
+        permits.release();
+    }
+
+    void borrowed() {
+        activeConnections.incrementAndGet();
+        borrows.increment();
+    }
+
+    /**
+     * Registra la devolución y libera la reserva del préstamo
+     */
+    void returned() {
+        activeConnections.decrementAndGet();
+        permits.release();
+    }
+
+    public String getTenantId() { return tenantId; }
+    /** Máximo de conexiones prestadas a la vez al tenant */
+    public int getMaxConnections() { return maxConnections; }
+    /** Conexiones prestadas al tenant en este momento */
+    public int getActiveConnections() { return activeConnections.get(); }
+    /** Préstamos acumulados */
+    public long getBorrows() { return borrows.sum(); }
+
+    @Override
+    public String toString() {
+        return "TenantUsage{" +
+                "tenantId='" + tenantId + '\'' +
+                ", activeConnections=" + activeConnections.get() +
+                ", borrows=" + borrows.sum() +
+                '}';
+    }
+}
@@ -0,0 +1,222 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+import com.roelias.crud.Exceptions.TenantNotFoundException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Calienta los pools de los tenants antes de recibir tráfico.
+ * <p>
+ * Para cada pool físico, en paralelo y en el orden dado (los más usados primero), abre
+ * max(minIdle, 1) conexiones (conexión física, TLS, autenticación), las valida y prepara las
+ * sentencias registradas sin ejecutarlas. Nunca retiene más conexiones de las que el pool puede
+ * prestar en ese momento, para no bloquearse ni dejar sin conexiones al tráfico real. Los tenants
+ * que comparten pool ({@link JdbiConnectionPool#setSharePools}) lo calientan una sola vez: el
+ * primero en llegar lo hace y el resto se reporta como calentado. Los tenants que no terminan
+ * dentro del presupuesto de tiempo se reportan como omitidos y se calentarán en su primer uso.
+ * </p>
+ * <p>
+ * Preparar sin ejecutar solo carga las clases del driver y analiza el SQL en el cliente;
+ * no crea sentencias preparadas en el servidor (pgjdbc lo hace tras {@code prepareThreshold}
+ * ejecuciones y Connector/J solo con {@code useServerPrepStmts=true}). Las sentencias no se
+ * ejecutan para no disparar triggers, secuencias ni bloqueos al calentar.
+ * </p>
+ *
+ * <pre>{@code
+ * WarmUpReport report = pool.warmUp()
+ *         .tenants(hottestTenants)
+ *         .statements(users, orders)
+ *         .budget(Duration.ofSeconds(20))
+ *         .onProgress((tenantId, done, total) -> log.info(done + "/" + total))
+ *         .run();
+ * }</pre>
+ */
+public class TenantWarmUp {
+
+    /**
+     * Avisa cada vez que un tenant termina (bien o mal); se invoca desde los hilos de calentamiento
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(String tenantId, int completed, int total);
+    }
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):([A-Za-z_]\\w*)");
+
+    private final JdbiConnectionPool pool;
+    private Collection<String> tenants;
+    private final Set<String> statements = new LinkedHashSet<>();
+    private int parallelism = 8;
+    private Duration budget = Duration.ofSeconds(30);
+    private ProgressListener listener = (tenantId, completed, total) -> {};
+
+    public TenantWarmUp(JdbiConnectionPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Tenants a calentar, en orden de prioridad (por defecto todos los configurados)
+     */
+    public TenantWarmUp tenants(Collection<String> tenantIds) {
+        this.tenants = new ArrayList<>(tenantIds);
+        return this;
+    }
+
+    /**
+     * Prepara (sin ejecutar) el INSERT, UPDATE y SELECT por id de cada CRUD
+     */
+    public TenantWarmUp statements(CRUD<?, ?>... cruds) {
+        for (CRUD<?, ?> crud : cruds) {
+            statements.add(toJdbc(crud.buildInsertSql()));
+            statements.add(toJdbc(crud.buildUpdateSql()));
+            statements.add(toJdbc(crud.buildFindByIdSql()));
+        }
+        return this;
+    }
+
+    /**
+     * Prepara sentencias adicionales (admite parámetros con nombre)
+     */
+    public TenantWarmUp statements(String... sql) {
+        for (String statement : sql) {
+            statements.add(toJdbc(statement));
+        }
+        return this;
+    }
+
+    public TenantWarmUp parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Tiempo total disponible; al agotarse se interrumpe lo pendiente
+     */
+    public TenantWarmUp budget(Duration budget) {
+        this.budget = Objects.requireNonNull(budget);
+        return this;
+    }
+
+    public TenantWarmUp onProgress(ProgressListener listener) {
+        this.listener = Objects.requireNonNull(listener);
+        return this;
+    }
+
+    public WarmUpReport run() {
+        long start = System.nanoTime();
+        List<String> targets = new ArrayList<>(tenants != null ? tenants : pool.getConfiguredTenants());
+        Semaphore permits = new Semaphore(parallelism, true);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger connections = new AtomicInteger();
+        AtomicInteger prepared = new AtomicInteger();
+        Set<TenantDataSource> warmedPools = ConcurrentHashMap.newKeySet();
+
+        List<Callable<Void>> tasks = new ArrayList<>(targets.size());
+        for (String tenantId : targets) {
+            tasks.add(() -> {
+                permits.acquire();
+                try {
+                    warmUp(tenantId, warmedPools, connections, prepared);
+                    return null;
+                } finally {
+                    permits.release();
+                    listener.onProgress(tenantId, completed.incrementAndGet(), targets.size());
+                }
+            });
+        }
+
+        List<String> warmed = new ArrayList<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        List<String> skipped = new ArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<Void>> futures = executor.invokeAll(tasks, budget.toNanos(), TimeUnit.NANOSECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                String tenantId = targets.get(i);
+                try {
+                    futures.get(i).get();
+                    warmed.add(tenantId);
+                } catch (CancellationException e) {
+                    skipped.add(tenantId);
+                } catch (ExecutionException e) {
+                    failures.put(tenantId, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TenantException("Interrupted during tenant warm-up", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new WarmUpReport(warmed, failures, skipped, connections.get(), prepared.get(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void warmUp(String tenantId, Set<TenantDataSource> warmedPools, AtomicInteger connections,
+                        AtomicInteger prepared) throws SQLException {
+        TenantDataSource dataSource = pool.getDataSource(tenantId).orElseThrow(() -> new TenantNotFoundException(tenantId));
+        if (!warmedPools.add(dataSource)) {
+            // Pool compartido que ya calienta (o calentó) otro tenant
+            return;
+        }
+        TenantConnection config = pool.resolveConfig(tenantId);
+        PoolSettings settings = dataSource.getSettings();
+        // Solo lo que el pool puede prestar ahora: retener más esperaría al timeout bloqueando a todos
+        int available = dataSource.getMaxSize() - dataSource.getActiveConnections();
+        int target = Math.max(1, Math.min(settings.getMinIdle(), available));
+        int validationTimeout = (int) Math.max(1, settings.getValidationTimeout().toSeconds());
+        // Se retienen a la vez para que sean conexiones físicas distintas
+        List<Connection> opened = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = dataSource.getSchemaConnection(config == null ? null : config.getSchema());
+                opened.add(connection);
+                if (!connection.isValid(validationTimeout)) {
+                    throw new SQLException("Connection validation failed for tenant " + tenantId);
+                }
+                for (String sql : statements) {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.close();
+                    prepared.incrementAndGet();
+                }
+            }
+        } finally {
+            for (Connection connection : opened) {
+                connection.close();
+            }
+            connections.addAndGet(opened.size());
+        }
+    }
+
+    /**
+     * Traduce los parámetros con nombre de JDBI (:name) a marcadores JDBC (?) sin tocar los casts ::tipo
+     */
+    static String toJdbc(String sql) {
+        return NAMED_PARAMETER.matcher(sql).replaceAll("?");
+    }
+}
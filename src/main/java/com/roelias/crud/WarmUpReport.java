@@ -0,0 +1,50 @@
+package com.roelias.crud;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de un {@link TenantWarmUp}.
+ */
+public class WarmUpReport {
+    private final List<String> warmed;
+    private final Map<String, Throwable> failures;
+    private final List<String> skipped;
+    private final int connectionsValidated;
+    private final int statementsPrepared;
+    private final Duration elapsed;
+
+    WarmUpReport(List<String> warmed, Map<String, Throwable> failures, List<String> skipped,
+                 int connectionsValidated, int statementsPrepared, Duration elapsed) {
+        this.warmed = Collections.unmodifiableList(warmed);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.skipped = Collections.unmodifiableList(skipped);
+        this.connectionsValidated = connectionsValidated;
+        this.statementsPrepared = statementsPrepared;
+        this.elapsed = elapsed;
+    }
+
+    /** Tenants calentados y validados */
+    public List<String> getWarmed() { return warmed; }
+    /** Tenants cuyo calentamiento falló */
+    public Map<String, Throwable> getFailures() { return failures; }
+    /** Tenants que no terminaron dentro del presupuesto de tiempo */
+    public List<String> getSkipped() { return skipped; }
+    public int getConnectionsValidated() { return connectionsValidated; }
+    public int getStatementsPrepared() { return statementsPrepared; }
+    public Duration getElapsed() { return elapsed; }
+
+    @Override
+    public String toString() {
+        return "WarmUpReport{" +
+                "warmed=" + warmed.size() +
+                ", failed=" + failures.keySet() +
+                ", skipped=" + skipped.size() +
+                ", connectionsValidated=" + connectionsValidated +
+                ", statementsPrepared=" + statementsPrepared +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+}
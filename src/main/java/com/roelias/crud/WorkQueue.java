@@ -0,0 +1,189 @@
+package com.roelias.crud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Work queue over an entity table, for several workers consuming the same rows.
+ * <p>
+ * Each {@link #poll(Consumer)} claims up to {@code batchSize} matching rows with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, maps them with {@link CRUD#getRowMapper()}, runs the
+ * handler and then deletes the rows (or updates them with the configured values), all in one
+ * transaction. Rows locked by another worker are skipped instead of waited for, so workers never
+ * block each other and never receive the same row. If the handler throws, the transaction rolls
+ * back and the rows become available again.
+ * </p>
+ * <p>
+ * Requires PostgreSQL 9.5+ or MySQL 8.0+. Always runs on the primary ({@link CRUD#getConfiguredJdbi()}).
+ * Keep the handler short: the rows stay locked, and a connection stays busy, until it returns.
+ * </p>
+ *
+ * <pre>{@code
+ * WorkQueue<Job, Long> queue = jobCrud.workQueue()
+ *         .where("status = :status").param("status", "PENDING")
+ *         .orderBy("created_at")
+ *         .batchSize(20)
+ *         .markOnSuccess(Map.of("status", "DONE"))   // default: delete the rows
+ *         .build();
+ *
+ * while (running) {
+ *     if (queue.poll(jobs -> jobs.forEach(this::process)) == 0) {
+ *         Thread.sleep(500);
+ *     }
+ * }
+ * }</pre>
+ *
+ * @param <E> the entity type
+ * @param <ID> the primary key type
+ */
+public class WorkQueue<E, ID> {
+
+    private final CRUD<E, ID> crud;
+    private final String claimSql;
+    private final Map<String, Object> parameters;
+    private final Map<String, ?> markValues;
+
+    private WorkQueue(Builder<E, ID> builder) {
+        this.crud = builder.crud;
+        SqlBuilder query = SqlBuilder.select().from(crud.getTableName())
+                .params(builder.parameters)
+                .limit(builder.batchSize)
+                .forUpdateSkipLocked();
+        builder.conditions.forEach(query::where);
+        builder.orderBy.forEach(query::orderBy);
+        this.claimSql = query.build();
+        this.parameters = new HashMap<>(builder.parameters);
+        this.markValues = builder.markValues;
+    }
+
+    public static <E, ID> Builder<E, ID> builder(CRUD<E, ID> crud) {
+        return new Builder<>(crud);
+    }
+
+    /**
+     * Claims a batch of rows, runs the handler and completes the rows, in one transaction.
+     *
+     * @param handler processes the claimed rows; an exception rolls everything back
+     * @return the number of rows processed, 0 if no unlocked row matched
+     */
+    public int poll(Consumer<List<E>> handler) {
+        Objects.requireNonNull(handler, "handler");
+        int processed = crud.getConfiguredJdbi().inTransaction(handle -> {
+            List<E> rows = handle.createQuery(claimSql)
+                    .bindMap(parameters)
+                    .map(crud.getRowMapper())
+                    .list();
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            handler.accept(rows);
+
+            Map<ID, Object> ids = new LinkedHashMap<>();
+            for (E row : rows) {
+                @SuppressWarnings("unchecked")
+                ID id = (ID) crud.getIdValue(row);
+                ids.put(id, null);
+            }
+            if (markValues == null) {
+                String delete = "DELETE FROM " + crud.getTableName() + " WHERE " + crud.getIdColumnName()
+                        + " = :" + crud.getIdField().getName();
+                crud.executeById(handle, delete, Map.of(), ids);
+            } else {
+                SqlBuilder.UpdateBuilder update = crud.buildPatch(markValues);
+                String sql = crud.buildByIdUpdate(update);
+                crud.executeById(handle, sql, update.getParameters(), ids);
+            }
+            return rows.size();
+        });
+        if (processed > 0) {
+            // Opens the read-your-writes window: the completed rows are read from the primary
+            crud.markWrite();
+        }
+        return processed;
+    }
+
+    /**
+     * SELECT used to claim rows, for logging and diagnostics
+     */
+    public String getClaimSql() {
+        return claimSql;
+    }
+
+    public static class Builder<E, ID> {
+        private final CRUD<E, ID> crud;
+        private final List<String> conditions = new ArrayList<>();
+        private final Map<String, Object> parameters = new HashMap<>();
+        private final List<String> orderBy = new ArrayList<>();
+        private int batchSize = 10;
+        private Map<String, ?> markValues;
+
+        private Builder(CRUD<E, ID> crud) {
+            this.crud = Objects.requireNonNull(crud, "crud");
+        }
+
+        /**
+         * Condition rows must match to be claimed; several are combined with AND
+         */
+        public Builder<E, ID> where(String condition) {
+            conditions.add(condition);
+            return this;
+        }
+
+        public Builder<E, ID> param(String name, Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        /**
+         * Claim order, e.g. {@code "created_at"} or {@code "priority DESC"}
+         */
+        public Builder<E, ID> orderBy(String orderBy) {
+            this.orderBy.add(orderBy);
+            return this;
+        }
+
+        /**
+         * Maximum rows claimed per poll
+         */
+        public Builder<E, ID> batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Deletes processed rows (default)
+         */
+        public Builder<E, ID> deleteOnSuccess() {
+            this.markValues = null;
+            return this;
+        }
+
+        /**
+         * Keeps processed rows and sets these fields instead, as {@link CRUD#patch(Object, Map)} does.
+         * The values must make the rows stop matching the where conditions.
+         */
+        public Builder<E, ID> markOnSuccess(Map<String, ?> values) {
+            if (values == null || values.isEmpty()) {
+                throw new IllegalArgumentException("markOnSuccess needs at least one field");
+            }
+            this.markValues = new LinkedHashMap<>(values);
+            return this;
+        }
+
+        public WorkQueue<E, ID> build() {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            if (markValues != null) {
+                // Validates the field names now rather than on the first poll
+                crud.buildPatch(markValues);
+            }
+            return new WorkQueue<>(this);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for a {@link CRUD} repository.
+ * <p>
+ * {@link #write(Object)} stores the entity in memory and returns immediately; a background thread
+ * persists the buffered entities with batched upserts ({@link CRUD#buildUpsertSql()}) every
+ * {@code flushInterval}, or as soon as {@code flushSize} distinct rows are pending. Repeated writes
+ * to the same {@code @Id} before a flush are coalesced: only the last one is written. Entities are
+ * grouped by the {@link Jdbi} the repository resolves when they are written, so each tenant's rows
+ * go to its own database.
+ * </p>
+ * <p>
+ * Memory is bounded by {@code capacity} rows, counting those of a flush in progress until its
+ * transaction commits: when the buffer is full, writers of new IDs block until a flush frees room
+ * (updates to an ID still pending never block). A failed flush puts its rows back unless a newer write
+ * for the same ID arrived meanwhile, so a database outage keeps the buffer full instead of growing it,
+ * and is retried on the next cycle. {@link #close()} flushes what is left, and so does a JVM shutdown hook unless disabled.
+ * </p>
+ * <p>
+ * {@link #write(Object)} processes the entity on the calling thread, as {@link CRUD#save(Object)} does
+ * (UUIDs, defaults, timestamps, version), and copies the values to write; the buffer never keeps or
+ * touches the entity afterwards, so later changes to it are not written unless it is written again.
+ * </p>
+ * <p>
+ * Writes are durable only after a flush: a crash loses whatever is still buffered. Use it for
+ * high-rate, last-value-wins data such as telemetry or counters, not for records that must survive
+ * a failure.
+ * </p>
+ *
+ * <pre>{@code
+ * WriteBehindBuffer<Reading, String> buffer = readingCrud.writeBehind()
+ *         .capacity(50_000)
+ *         .flushSize(1_000)
+ *         .flushInterval(Duration.ofMillis(250))
+ *         .build();
+ *
+ * buffer.write(reading);            // returns immediately
+ * buffer.getDepth();                // rows waiting to be flushed
+ * buffer.close();                   // final flush
+ * }</pre>
+ *
+ * @param <E> the entity type
+ * @param <ID> the primary key type
+ */
+public class WriteBehindBuffer<E, ID> implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(WriteBehindBuffer.class.getName());
+
+    private final CRUD<E, ID> crud;
+    private final int capacity;
+    private final int flushSize;
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+
+    // Upsert parameters of the pending rows per Jdbi, keyed by ID in arrival order; guarded by lock
+    private final Map<Jdbi, LinkedHashMap<Object, Map<String, Object>>> pending = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private int pendingRows;
+    // Rows taken by the running flush; they count against capacity until committed or put back
+    private int inFlightRows;
+    private boolean flushRequested;
+    private volatile boolean closed;
+
+    // Only one flush at a time, so an older batch never overwrites a newer one
+    private final Object flushMonitor = new Object();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    private WriteBehindBuffer(Builder<E, ID> builder) {
+        this.crud = builder.crud;
+        this.capacity = builder.capacity;
+        this.flushSize = builder.flushSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "write-behind-" + crud.getTableName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = builder.flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+        if (builder.flushOnShutdown) {
+            shutdownHook = new Thread(this::flushQuietly, "write-behind-shutdown-" + crud.getTableName());
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            shutdownHook = null;
+        }
+    }
+
+    public static <E, ID> Builder<E, ID> builder(CRUD<E, ID> crud) {
+        return new Builder<>(crud);
+    }
+
+    /**
+     * Buffers an insert or update of the entity, blocking while the buffer is full. The entity's
+     * values are copied now; changing it afterwards does not change what is written.
+     *
+     * @param entity the entity; its {@code @Id} must be set
+     * @throws IllegalArgumentException if the entity has no ID
+     * @throws IllegalStateException if the buffer is closed
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public void write(E entity) throws InterruptedException {
+        offer(entity, -1);
+    }
+
+    /**
+     * Buffers the entity, waiting at most {@code timeout} for room.
+     *
+     * @param entity the entity; its {@code @Id} must be set
+     * @param timeout maximum time to wait while the buffer is full
+     * @return false if the buffer was still full after the timeout
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public boolean offer(E entity, Duration timeout) throws InterruptedException {
+        return offer(entity, timeout.toNanos());
+    }
+
+    private boolean offer(E entity, long timeoutNanos) throws InterruptedException {
+        Object id = crud.getIdValue(Objects.requireNonNull(entity, "entity"));
+        if (id == null) {
+            throw new IllegalArgumentException("Write-behind entities need their @Id set before writing");
+        }
+        Jdbi jdbi = crud.getConfiguredJdbi();
+        Map<String, Object> row = crud.snapshotUpsertParameters(entity);
+        long remaining = timeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            LinkedHashMap<Object, Map<String, Object>> rows = pending.computeIfAbsent(jdbi, k -> new LinkedHashMap<>());
+            while (!rows.containsKey(id) && pendingRows + inFlightRows >= capacity) {
+                ensureOpen();
+                requestFlush();
+                if (timeoutNanos < 0) {
+                    notFull.await();
+                } else if (remaining <= 0) {
+                    return false;
+                } else {
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                // A flush may have emptied and dropped this Jdbi's map
+                rows = pending.computeIfAbsent(jdbi, k -> new LinkedHashMap<>());
+            }
+            ensureOpen();
+            if (rows.put(id, row) == null) {
+                pendingRows++;
+            } else {
+                coalesced.increment();
+            }
+            written.increment();
+            if (pendingRows >= flushSize) {
+                requestFlush();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-behind buffer for " + crud.getTableName() + " is closed");
+        }
+    }
+
+    /**
+     * Schedules an immediate flush unless one is already pending; called with the lock held
+     */
+    private void requestFlush() {
+        if (!flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Writes every buffered row now, in one transaction per Jdbi.
+     *
+     * @return the number of rows written
+     * @throws RuntimeException the first failure; the rows of the failed batch stay buffered
+     */
+    public int flush() {
+        synchronized (flushMonitor) {
+            Map<Jdbi, LinkedHashMap<Object, Map<String, Object>>> batches;
+            lock.lock();
+            try {
+                flushRequested = false;
+                if (pendingRows == 0) {
+                    return 0;
+                }
+                batches = new HashMap<>(pending);
+                pending.clear();
+                inFlightRows = pendingRows;
+                pendingRows = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            int rows = 0;
+            RuntimeException failure = null;
+            for (Map.Entry<Jdbi, LinkedHashMap<Object, Map<String, Object>>> batch : batches.entrySet()) {
+                try {
+                    upsert(batch.getKey(), new ArrayList<>(batch.getValue().values()));
+                    rows += batch.getValue().size();
+                    release(batch.getValue().size());
+                } catch (RuntimeException e) {
+                    restore(batch.getKey(), batch.getValue());
+                    failedFlushes.increment();
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            flushes.increment();
+            flushedRows.add(rows);
+            lastFlushNanos.set(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            if (failure != null) {
+                throw failure;
+            }
+            return rows;
+        }
+    }
+
+    private void upsert(Jdbi jdbi, List<Map<String, Object>> rows) {
+        jdbi.useTransaction(handle -> {
+            PreparedBatch batch = handle.prepareBatch(crud.buildUpsertSql());
+            for (Map<String, Object> row : rows) {
+                batch.bindMap(row).add();
+            }
+            batch.execute();
+        });
+    }
+
+    /**
+     * Frees the room of a committed batch
+     */
+    private void release(int rows) {
+        lock.lock();
+        try {
+            inFlightRows -= rows;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts back the rows of a failed batch; a newer write for the same ID wins and the old row is
+     * dropped. Rows move from in flight to pending, so the total never exceeds capacity.
+     */
+    private void restore(Jdbi jdbi, LinkedHashMap<Object, Map<String, Object>> rows) {
+        lock.lock();
+        try {
+            LinkedHashMap<Object, Map<String, Object>> current = pending.computeIfAbsent(jdbi, k -> new LinkedHashMap<>());
+            int dropped = 0;
+            for (Map.Entry<Object, Map<String, Object>> row : rows.entrySet()) {
+                if (current.putIfAbsent(row.getKey(), row.getValue()) == null) {
+                    pendingRows++;
+                } else {
+                    dropped++;
+                }
+            }
+            inFlightRows -= rows.size();
+            if (dropped > 0) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Write-behind flush failed for " + crud.getTableName()
+                    + ", rows kept for the next attempt", e);
+        }
+    }
+
+    /**
+     * Stops the background flushes and writes what is left. Writers blocked on a full buffer fail
+     * with {@link IllegalStateException}.
+     *
+     * @throws RuntimeException if the final flush fails; its rows stay buffered for a manual {@link #flush()}
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // The JVM is already exiting and the hook is running
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Rows held in memory: those waiting to be flushed plus those of a flush not yet committed
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return pendingRows + inFlightRows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls to write/offer that were accepted
+     */
+    public long getWritten() { return written.sum(); }
+    /**
+     * Writes that replaced a buffered row with the same ID instead of adding one
+     */
+    public long getCoalesced() { return coalesced.sum(); }
+    /**
+     * Flushes run, including failed ones
+     */
+    public long getFlushes() { return flushes.sum(); }
+    /**
+     * Rows written to the database
+     */
+    public long getFlushedRows() { return flushedRows.sum(); }
+    /**
+     * Batches that failed and were put back in the buffer
+     */
+    public long getFailedFlushes() { return failedFlushes.sum(); }
+    /**
+     * Duration of the last flush
+     */
+    public Duration getLastFlushLatency() { return Duration.ofNanos(lastFlushNanos.get()); }
+    /**
+     * Longest flush since the buffer was created
+     */
+    public Duration getMaxFlushLatency() { return Duration.ofNanos(maxFlushNanos.get()); }
+
+    public int getCapacity() { return capacity; }
+
+    public static class Builder<E, ID> {
+        private final CRUD<E, ID> crud;
+        private int capacity = 10_000;
+        private int flushSize = 1_000;
+        private Duration flushInterval = Duration.ofMillis(500);
+        private boolean flushOnShutdown = true;
+
+        private Builder(CRUD<E, ID> crud) {
+            this.crud = Objects.requireNonNull(crud, "crud");
+        }
+
+        /**
+         * Maximum rows held in memory, including those of a flush in progress; writers of new IDs block beyond it
+         */
+        public Builder<E, ID> capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Pending rows that trigger a flush before the interval elapses
+         */
+        public Builder<E, ID> flushSize(int flushSize) {
+            this.flushSize = flushSize;
+            return this;
+        }
+
+        public Builder<E, ID> flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Registers a JVM shutdown hook that flushes the remaining rows (true by default)
+         */
+        public Builder<E, ID> flushOnShutdown(boolean flushOnShutdown) {
+            this.flushOnShutdown = flushOnShutdown;
+            return this;
+        }
+
+        public WriteBehindBuffer<E, ID> build() {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be at least 1");
+            }
+            if (flushSize < 1 || flushSize > capacity) {
+                throw new IllegalArgumentException("flushSize must be between 1 and capacity");
+            }
+            if (flushInterval == null || flushInterval.toMillis() < 1) {
+                throw new IllegalArgumentException("flushInterval must be at least 1ms");
+            }
+            return new WriteBehindBuffer<>(this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAsyncCRUD {
+
+    @CRUD.Table("users")
+    public static class User {
+        @CRUD.Id
+        private Long id;
+    }
+
+    @CRUD.Table("orders")
+    public static class Order {
+        @CRUD.Id
+        private Long id;
+    }
+
+    // Never connected: the operations below do not touch the database
+    private static final Jdbi UNUSED = Jdbi.create("jdbc:unused:");
+
+    @Test
+    public void testLimitIsSharedByFacadesOnTheSameJdbi() throws Exception {
+        Jdbi jdbi = Jdbi.create("jdbc:unused:shared");
+        CRUD<User, Long> users = new CRUD<>(jdbi, User.class, Long.class) { };
+        CRUD<Order, Long> orders = new CRUD<>(jdbi, Order.class, Long.class) { };
+        ExecutorService threads = Executors.newFixedThreadPool(30);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            List<CompletableFuture<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                AsyncCRUD<?, ?> facade = i % 3 == 0 ? users.async()
+                        : i % 3 == 1 ? new AsyncCRUD<>(users, threads, AsyncCRUD.DEFAULT_MAX_CONCURRENCY)
+                        : new AsyncCRUD<>(orders, threads, AsyncCRUD.DEFAULT_MAX_CONCURRENCY);
+                futures.add(facade.supplyAsync(crud -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return null;
+                }));
+            }
+            Thread.sleep(200);
+            assertEquals(AsyncCRUD.DEFAULT_MAX_CONCURRENCY, users.async().getInFlight());
+            release.countDown();
+            for (CompletableFuture<Object> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(AsyncCRUD.DEFAULT_MAX_CONCURRENCY, peak.get());
+            assertEquals(0, orders.async().getInFlight());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTenantIsPropagatedToTheTask() throws Exception {
+        CRUD<User, Long> users = new CRUD<>(UNUSED, User.class, Long.class) { };
+        String tenant = TenantContext.callAs("acme",
+                () -> users.async().supplyAsync(crud -> TenantContext.getTenantId()).get());
+        assertEquals("acme", tenant);
+    }
+
+    @Test
+    public void testFailuresCompleteTheFutureExceptionally() {
+        CRUD<User, Long> users = new CRUD<>(UNUSED, User.class, Long.class) { };
+        CompletableFuture<Object> future = users.async().supplyAsync(crud -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletionException error = assertThrows(CompletionException.class, future::join);
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertEquals(0, users.async().getInFlight());
+    }
+
+    @Test
+    public void testRejectsInvalidLimit() {
+        CRUD<User, Long> users = new CRUD<>(UNUSED, User.class, Long.class) { };
+        assertThrows(IllegalArgumentException.class, () -> new AsyncCRUD<>(users, Runnable::run, 0));
+    }
+}
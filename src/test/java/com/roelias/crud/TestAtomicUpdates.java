@@ -0,0 +1,218 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAtomicUpdates {
+
+    @CRUD.Table("products")
+    public static class Product {
+        @CRUD.Id
+        private Long id;
+        private String name;
+        private Integer stock;
+        @CRUD.UpdatedDate
+        private LocalDateTime updatedAt;
+    }
+
+    /**
+     * Connection that records each statement and the values bound to it
+     */
+    private static final class FakeDatabase {
+        final List<String> sql = new CopyOnWriteArrayList<>();
+        final List<List<Object>> rows = new CopyOnWriteArrayList<>();
+        final int singleCount;
+        final int batchCount;
+
+        FakeDatabase(int singleCount, int batchCount) {
+            this.singleCount = singleCount;
+            this.batchCount = batchCount;
+        }
+
+        Jdbi jdbi() {
+            return Jdbi.create(() -> {
+                boolean[] autoCommit = {true};
+                return proxy(Connection.class, (method, args) -> {
+                    switch (method) {
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "setAutoCommit":
+                            autoCommit[0] = (Boolean) args[0];
+                            return DEFAULT;
+                        case "prepareStatement":
+                            sql.add((String) args[0]);
+                            return statement();
+                        default:
+                            return DEFAULT;
+                    }
+                });
+            });
+        }
+
+        private PreparedStatement statement() {
+            List<Object> current = new ArrayList<>();
+            int[] batched = {0};
+            return proxy(PreparedStatement.class, (method, args) -> {
+                if (method.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    current.add(args[1]);
+                    return DEFAULT;
+                }
+                switch (method) {
+                    case "addBatch":
+                        rows.add(new ArrayList<>(current));
+                        current.clear();
+                        batched[0]++;
+                        return DEFAULT;
+                    case "executeBatch":
+                        int[] counts = new int[batched[0]];
+                        Arrays.fill(counts, batchCount);
+                        return counts;
+                    case "execute":
+                        rows.add(new ArrayList<>(current));
+                        return false;
+                    case "executeUpdate":
+                    case "getUpdateCount":
+                        return singleCount;
+                    case "getLargeUpdateCount":
+                        return (long) singleCount;
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+    }
+
+    private static final Object DEFAULT = new Object();
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Object result = answer.answer(method.getName(), args);
+                    if (result != DEFAULT) {
+                        return result;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType == int.class) {
+                        return 0;
+                    }
+                    return returnType == long.class ? (Object) 0L : null;
+            }
+        });
+    }
+
+    private static CRUD<Product, Long> products(FakeDatabase database) {
+        return new CRUD<>(database.jdbi(), Product.class, Long.class) { };
+    }
+
+    @Test
+    public void testIncrementRunsInTheDatabase() {
+        FakeDatabase database = new FakeDatabase(1, 1);
+        assertTrue(products(database).increment(7L, "stock", 3));
+
+        String sql = database.sql.get(0);
+        assertTrue(sql.startsWith("UPDATE products SET stock = stock + ?"), sql);
+        assertTrue(sql.endsWith("WHERE id = ?"), sql);
+        List<Object> bound = database.rows.get(0);
+        assertTrue(bound.contains(3), bound.toString());
+        assertTrue(bound.contains(7L), bound.toString());
+    }
+
+    @Test
+    public void testDecrementSubtracts() {
+        FakeDatabase database = new FakeDatabase(0, 1);
+        // The row does not exist: no update reported
+        assertFalse(products(database).decrement(7L, "stock", 2));
+        assertTrue(database.sql.get(0).contains("stock = stock - ?"), database.sql.get(0));
+    }
+
+    @Test
+    public void testUpdatedDateIsRefreshed() {
+        FakeDatabase database = new FakeDatabase(1, 1);
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        products(database).increment(7L, "stock", 1);
+
+        assertTrue(database.sql.get(0).contains("updatedAt = ?"), database.sql.get(0));
+        assertTrue(database.rows.get(0).stream().anyMatch(value -> toDateTime(value) != null
+                && toDateTime(value).isAfter(before)), database.rows.get(0).toString());
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime;
+        }
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : null;
+    }
+
+    @Test
+    public void testPatchWritesOnlyTheListedFields() {
+        FakeDatabase database = new FakeDatabase(1, 1);
+        assertTrue(products(database).patch(7L, Map.of("name", "Lamp")));
+
+        String sql = database.sql.get(0);
+        assertTrue(sql.startsWith("UPDATE products SET name = ?"), sql);
+        assertFalse(sql.contains("stock"), sql);
+        assertTrue(database.rows.get(0).contains("Lamp"), database.rows.get(0).toString());
+    }
+
+    @Test
+    public void testBatchesCountRowsWithoutExactCounts() {
+        // MySQL with rewriteBatchedStatements reports SUCCESS_NO_INFO for every row
+        FakeDatabase database = new FakeDatabase(1, Statement.SUCCESS_NO_INFO);
+        CRUD<Product, Long> products = products(database);
+
+        assertEquals(3, products.incrementAll(List.of(1L, 2L, 3L), "stock", 1));
+        assertEquals(2, products.incrementAll(Map.of(1L, 5, 2L, -1), "stock"));
+        assertEquals(2, products.patchAll(List.of(1L, 2L), Map.of("name", "Lamp")));
+    }
+
+    @Test
+    public void testBatchesSkipMissingRows() {
+        FakeDatabase database = new FakeDatabase(1, 0);
+        assertEquals(0, products(database).incrementAll(List.of(1L, 2L), "stock", 1));
+        assertEquals(0, products(database).incrementAll(List.of(), "stock", 1));
+    }
+
+    @Test
+    public void testRejectedFields() {
+        FakeDatabase database = new FakeDatabase(1, 1);
+        CRUD<Product, Long> products = products(database);
+
+        assertThrows(IllegalArgumentException.class, () -> products.increment(7L, "id", 1));
+        assertThrows(IllegalArgumentException.class, () -> products.increment(7L, "name", 1));
+        assertThrows(IllegalArgumentException.class, () -> products.increment(7L, "missing", 1));
+        assertThrows(IllegalArgumentException.class, () -> products.patch(7L, Map.of("id", 8L)));
+        assertThrows(IllegalArgumentException.class, () -> products.patch(7L, Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> products.patch(7L, Map.of("missing", 1)));
+        assertTrue(database.sql.isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDelimitedArrayCodec {
+
+    private enum Color { RED, GREEN }
+
+    private static List<String> roundTrip(List<String> values, String separator) {
+        return DelimitedArrayCodec.decodeList(DelimitedArrayCodec.encode(values, separator), separator, String.class);
+    }
+
+    @Test
+    public void testSimpleJoinAndSplit() {
+        assertEquals("a,b,c", DelimitedArrayCodec.encode(List.of("a", "b", "c"), ","));
+        assertEquals(List.of("a", "b", "c"), DelimitedArrayCodec.decodeList("a,b,c", ",", String.class));
+    }
+
+    @Test
+    public void testPipeIsNotTreatedAsRegex() {
+        List<String> values = List.of("x", "y|z", "");
+        assertEquals("x|y\\|z|", DelimitedArrayCodec.encode(values, "|"));
+        assertEquals(values, roundTrip(values, "|"));
+    }
+
+    @Test
+    public void testEscapesSeparatorAndBackslash() {
+        List<String> values = List.of("a,b", "c\\d", "\\", ",", "e\\,f");
+        String encoded = DelimitedArrayCodec.encode(values, ",");
+        assertEquals("a\\,b,c\\\\d,\\\\,\\,,e\\\\\\,f", encoded);
+        assertEquals(values, DelimitedArrayCodec.decodeList(encoded, ",", String.class));
+    }
+
+    @Test
+    public void testMultiCharacterSeparatorIsInjective() {
+        List<String> left = List.of("a:", "b");
+        List<String> right = List.of("a", ":b");
+        String leftEncoded = DelimitedArrayCodec.encode(left, "::");
+        String rightEncoded = DelimitedArrayCodec.encode(right, "::");
+        assertNotEquals(leftEncoded, rightEncoded);
+        assertEquals(left, roundTrip(left, "::"));
+        assertEquals(right, roundTrip(right, "::"));
+        assertEquals(List.of(":", "::", ":::", "a::b"), roundTrip(List.of(":", "::", ":::", "a::b"), "::"));
+        assertEquals(List.of("<", "><", "<>"), roundTrip(List.of("<", "><", "<>"), "<>"));
+    }
+
+    @Test
+    public void testEmptyAndNullElements() {
+        List<String> values = new ArrayList<>(Arrays.asList("", null, "a", ""));
+        String encoded = DelimitedArrayCodec.encode(values, ",");
+        assertEquals(",,a,", encoded);
+        // A null element is stored as an empty string
+        assertEquals(List.of("", "", "a", ""), DelimitedArrayCodec.decodeList(encoded, ",", String.class));
+        assertEquals(Arrays.asList(null, 3L), DelimitedArrayCodec.decodeList(",3", ",", Long.class));
+    }
+
+    @Test
+    public void testSingleEmptyElementRoundTrips() {
+        assertEquals("\\", DelimitedArrayCodec.encode(List.of(""), ","));
+        assertEquals(List.of(""), roundTrip(List.of(""), ","));
+        assertEquals(List.of(""), roundTrip(List.of(""), "::"));
+        assertEquals(List.of(""), roundTrip(Arrays.asList((String) null), ","));
+        assertArrayEquals(new String[]{""}, (String[]) DelimitedArrayCodec.decodeArray(
+                DelimitedArrayCodec.encode(new String[]{""}, "|"), "|", String.class));
+        assertEquals(Arrays.asList((Long) null), DelimitedArrayCodec.decodeList(
+                DelimitedArrayCodec.encode(Arrays.asList((Long) null), ","), ",", Long.class));
+        // An element holding the escape character itself stays distinct
+        assertEquals(List.of("\\"), roundTrip(List.of("\\"), ","));
+        assertEquals(List.of("", ""), roundTrip(List.of("", ""), ","));
+    }
+
+    @Test
+    public void testEmptyElementsAreRejectedForPrimitiveArrays() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DelimitedArrayCodec.decodeArray("1,,3", ",", long.class));
+        assertEquals("Empty element cannot be decoded into a long array", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> DelimitedArrayCodec.decodeArray("4,", ",", int.class));
+        assertThrows(IllegalArgumentException.class, () -> DelimitedArrayCodec.decodeArray("\\", ",", double.class));
+        assertArrayEquals(new Long[]{1L, null, 3L}, (Long[]) DelimitedArrayCodec.decodeArray("1,,3", ",", Long.class));
+    }
+
+    @Test
+    public void testNullOrEmptyColumnDecodesToEmpty() {
+        assertTrue(DelimitedArrayCodec.decodeList(null, ",", String.class).isEmpty());
+        assertTrue(DelimitedArrayCodec.decodeList("", ",", String.class).isEmpty());
+        assertEquals(0, ((String[]) DelimitedArrayCodec.decodeArray(null, ",", String.class)).length);
+        assertEquals("", DelimitedArrayCodec.encode(List.of(), ","));
+    }
+
+    @Test
+    public void testTypedElements() {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(List.of(1L, -2L), DelimitedArrayCodec.decodeList("1;-2", ";", Long.class));
+        assertEquals(List.of(7, 8), DelimitedArrayCodec.decodeList("7;8", ";", Integer.class));
+        assertEquals(List.of(1.5), DelimitedArrayCodec.decodeList("1.5", ";", Double.class));
+        assertEquals(List.of(uuid), DelimitedArrayCodec.decodeList(uuid.toString(), ";", UUID.class));
+        assertEquals("RED;GREEN", DelimitedArrayCodec.encode(List.of(Color.RED, Color.GREEN), ";"));
+        assertEquals(List.of(Color.GREEN), DelimitedArrayCodec.decodeList("GREEN", ";", Color.class));
+    }
+
+    @Test
+    public void testPrimitiveAndObjectArrays() {
+        assertEquals("1,2,3", DelimitedArrayCodec.encode(new long[]{1, 2, 3}, ","));
+        assertArrayEquals(new long[]{1, 2, 3}, (long[]) DelimitedArrayCodec.decodeArray("1,2,3", ",", long.class));
+        assertArrayEquals(new int[]{4, 5}, (int[]) DelimitedArrayCodec.decodeArray("4,5", ",", int.class));
+        String[] values = {"a|b", "c"};
+        String encoded = DelimitedArrayCodec.encode(values, "|");
+        assertArrayEquals(values, (String[]) DelimitedArrayCodec.decodeArray(encoded, "|", String.class));
+    }
+
+    @Test
+    public void testRejectsInvalidSeparatorsAndValues() {
+        assertThrows(IllegalArgumentException.class, () -> DelimitedArrayCodec.encode(List.of("a"), ""));
+        assertThrows(IllegalArgumentException.class, () -> DelimitedArrayCodec.encode(List.of("a"), "\\"));
+        assertThrows(IllegalArgumentException.class, () -> DelimitedArrayCodec.encode("not an array", ","));
+    }
+}
@@ -0,0 +1,86 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFullText {
+
+    // Never connected: predicates and DDL are rendered without a database
+    private static final Jdbi UNUSED = Jdbi.create("jdbc:unused:");
+
+    @CRUD.Table(value = "articles", dialect = CRUD.Dialect.POSTGRESQL)
+    public static class PostgresArticle {
+        @CRUD.Id
+        private Long id;
+        @CRUD.FullText(language = "spanish")
+        private String title;
+        @CRUD.FullText
+        @CRUD.Column("body_text")
+        private String body;
+    }
+
+    @CRUD.Table(value = "articles", dialect = CRUD.Dialect.MYSQL)
+    public static class MysqlArticle {
+        @CRUD.Id
+        private Long id;
+        @CRUD.FullText
+        private String title;
+        @CRUD.FullText
+        @CRUD.Column("body_text")
+        private String body;
+    }
+
+    @CRUD.Table("plain")
+    public static class Plain {
+        @CRUD.Id
+        private Long id;
+        private String name;
+    }
+
+    @CRUD.Table(value = "bad_language", dialect = CRUD.Dialect.POSTGRESQL)
+    public static class BadLanguage {
+        @CRUD.Id
+        private Long id;
+        @CRUD.FullText(language = "english'); DROP TABLE x; --")
+        private String title;
+    }
+
+    @Test
+    public void testPostgresqlPredicateUsesFirstFieldLanguage() {
+        CRUD<PostgresArticle, Long> crud = new CRUD<>(UNUSED, PostgresArticle.class, Long.class) { };
+        assertEquals("search_vector @@ plainto_tsquery('spanish', :q)", crud.getFullTextPredicate("q"));
+    }
+
+    @Test
+    public void testPostgresqlTemplateAddsGeneratedVectorAndGinIndex() {
+        String ddl = new CRUD<>(UNUSED, PostgresArticle.class, Long.class) { }.getTableCreationTemplate();
+        assertTrue(ddl.contains("search_vector TSVECTOR GENERATED ALWAYS AS (to_tsvector('spanish', "
+                + "coalesce(title, '') || ' ' || coalesce(body_text, ''))) STORED"), ddl);
+        assertTrue(ddl.contains("CREATE INDEX idx_articles_search_vector ON articles USING GIN (search_vector);"), ddl);
+    }
+
+    @Test
+    public void testMysqlPredicateAndFulltextIndex() {
+        CRUD<MysqlArticle, Long> crud = new CRUD<>(UNUSED, MysqlArticle.class, Long.class) { };
+        assertEquals("MATCH(title, body_text) AGAINST(:q IN NATURAL LANGUAGE MODE)", crud.getFullTextPredicate("q"));
+        String ddl = crud.getTableCreationTemplate();
+        assertTrue(ddl.contains("CREATE FULLTEXT INDEX ft_articles ON articles (title, body_text);"), ddl);
+        assertTrue(!ddl.contains("TSVECTOR"), ddl);
+    }
+
+    @Test
+    public void testRejectsEntitiesWithoutFullTextFields() {
+        CRUD<Plain, Long> crud = new CRUD<>(UNUSED, Plain.class, Long.class) { };
+        assertThrows(IllegalStateException.class, () -> crud.getFullTextPredicate("q"));
+    }
+
+    @Test
+    public void testRejectsInvalidLanguage() {
+        CRUD<BadLanguage, Long> crud = new CRUD<>(UNUSED, BadLanguage.class, Long.class) { };
+        assertThrows(IllegalArgumentException.class, () -> crud.getFullTextPredicate("q"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestGroupCommitter {
+
+    /**
+     * Counts the transaction calls Jdbi makes on a connection that runs no SQL
+     */
+    private static final class FakeDatabase {
+        final AtomicInteger commits = new AtomicInteger();
+        final AtomicInteger rollbacksToSavepoint = new AtomicInteger();
+        volatile boolean failCommit;
+
+        Jdbi jdbi() {
+            return Jdbi.create(this::connection);
+        }
+
+        private Connection connection() {
+            boolean[] autoCommit = {true};
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return autoCommit[0];
+                            case "setAutoCommit":
+                                autoCommit[0] = (Boolean) args[0];
+                                return null;
+                            case "commit":
+                                if (failCommit) {
+                                    throw new SQLException("commit failed");
+                                }
+                                commits.incrementAndGet();
+                                return null;
+                            case "setSavepoint":
+                                return savepoint();
+                            case "rollback":
+                                if (args != null) {
+                                    rollbacksToSavepoint.incrementAndGet();
+                                }
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return "fake connection";
+                            default:
+                                Class<?> type = method.getReturnType();
+                                return type == boolean.class ? false : type == int.class ? 0 : null;
+                        }
+                    });
+        }
+
+        private static Savepoint savepoint() {
+            return (Savepoint) Proxy.newProxyInstance(Savepoint.class.getClassLoader(),
+                    new Class<?>[] {Savepoint.class}, (proxy, method, args) -> null);
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesShareOneCommit() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        Jdbi jdbi = database.jdbi();
+        GroupCommitter committer = new GroupCommitter(Duration.ofSeconds(10), 4);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<CompletableFuture<Integer>>> submitted = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int value = i;
+                submitted.add(CompletableFuture.supplyAsync(() -> committer.submit(jdbi, handle -> value), threads));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(i), submitted.get(i).get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+            }
+            // Full batch: the leader does not wait out the 10 s window
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(1, database.commits.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailingWriteIsRolledBackAlone() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        Jdbi jdbi = database.jdbi();
+        GroupCommitter committer = new GroupCommitter(Duration.ofSeconds(10), 3);
+        ExecutorService threads = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<CompletableFuture<String>> first = CompletableFuture.supplyAsync(
+                    () -> committer.submit(jdbi, handle -> "first"), threads);
+            CompletableFuture<CompletableFuture<String>> failing = CompletableFuture.supplyAsync(
+                    () -> committer.submit(jdbi, handle -> {
+                        throw new IllegalStateException("constraint violated");
+                    }), threads);
+            CompletableFuture<CompletableFuture<String>> last = CompletableFuture.supplyAsync(
+                    () -> committer.submit(jdbi, handle -> "last"), threads);
+
+            assertEquals("first", first.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+            assertEquals("last", last.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> failing.get(5, TimeUnit.SECONDS).join());
+            assertTrue(error.getCause() instanceof IllegalStateException);
+            assertEquals(1, database.commits.get());
+            assertEquals(1, database.rollbacksToSavepoint.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testErrorInAWriteFailsTheWholeBatch() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        Jdbi jdbi = database.jdbi();
+        GroupCommitter committer = new GroupCommitter(Duration.ofSeconds(10), 3);
+        ExecutorService threads = Executors.newFixedThreadPool(3);
+        try {
+            List<CompletableFuture<CompletableFuture<String>>> submitted = new ArrayList<>();
+            submitted.add(CompletableFuture.supplyAsync(() -> committer.submit(jdbi, handle -> "first"), threads));
+            submitted.add(CompletableFuture.supplyAsync(() -> committer.submit(jdbi, handle -> {
+                throw new AssertionError("write crashed");
+            }), threads));
+            submitted.add(CompletableFuture.supplyAsync(() -> committer.submit(jdbi, handle -> "last"), threads));
+
+            for (CompletableFuture<CompletableFuture<String>> future : submitted) {
+                // The leader's own call throws the Error; every other caller's future completes with it
+                ExecutionException error = assertThrows(ExecutionException.class,
+                        () -> future.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+                assertTrue(error.getCause() instanceof AssertionError);
+            }
+            assertEquals(0, database.commits.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchOfOneCommitsImmediately() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        Jdbi jdbi = database.jdbi();
+        GroupCommitter committer = new GroupCommitter(Duration.ofSeconds(10), 1);
+        for (int i = 0; i < 3; i++) {
+            int value = i;
+            assertEquals(Integer.valueOf(value), committer.submit(jdbi, handle -> value).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(3, database.commits.get());
+    }
+
+    @Test
+    public void testCommitFailureFailsEveryWriteOfTheBatch() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        database.failCommit = true;
+        Jdbi jdbi = database.jdbi();
+        GroupCommitter committer = new GroupCommitter(Duration.ZERO, 10);
+
+        CompletableFuture<String> write = committer.submit(jdbi, handle -> "lost");
+        assertTrue(write.isCompletedExceptionally());
+        assertEquals(0, database.commits.get());
+    }
+
+    @Test
+    public void testBatchesArePerJdbi() throws Exception {
+        FakeDatabase first = new FakeDatabase();
+        FakeDatabase second = new FakeDatabase();
+        GroupCommitter committer = new GroupCommitter(Duration.ZERO, 10);
+        committer.submit(first.jdbi(), handle -> 1).get(1, TimeUnit.SECONDS);
+        committer.submit(second.jdbi(), handle -> 2).get(1, TimeUnit.SECONDS);
+        assertEquals(1, first.commits.get());
+        assertEquals(1, second.commits.get());
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommitter(Duration.ofMillis(-1), 10));
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommitter(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommitter(Duration.ZERO, 0));
+    }
+}
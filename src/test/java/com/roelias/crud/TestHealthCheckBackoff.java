@@ -0,0 +1,40 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestHealthCheckBackoff {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    public void testDoublesPerFailureUpToMax() {
+        long max = Duration.ofMinutes(2).toNanos();
+        assertEquals(10 * SECOND, AbstractConnectionPool.healthBackoffNanos(10 * SECOND, max, 1));
+        assertEquals(20 * SECOND, AbstractConnectionPool.healthBackoffNanos(10 * SECOND, max, 2));
+        assertEquals(80 * SECOND, AbstractConnectionPool.healthBackoffNanos(10 * SECOND, max, 4));
+        assertEquals(max, AbstractConnectionPool.healthBackoffNanos(10 * SECOND, max, 5));
+        assertEquals(max, AbstractConnectionPool.healthBackoffNanos(10 * SECOND, max, 1000));
+    }
+
+    @Test
+    public void testLongIntervalsDoNotOverflow() {
+        long interval = Duration.ofHours(3).toNanos();
+        long max = Duration.ofDays(365).toNanos();
+        for (int failures = 1; failures < 100; failures++) {
+            long backoff = AbstractConnectionPool.healthBackoffNanos(interval, max, failures);
+            assertTrue(backoff >= interval && backoff <= max, "failures=" + failures + " backoff=" + backoff);
+        }
+        assertEquals(max, AbstractConnectionPool.healthBackoffNanos(interval, max, 21));
+    }
+
+    @Test
+    public void testMaxEqualToIntervalMeansNoBackoff() {
+        long interval = Duration.ofHours(6).toNanos();
+        assertEquals(interval, AbstractConnectionPool.healthBackoffNanos(interval, interval, 30));
+    }
+}
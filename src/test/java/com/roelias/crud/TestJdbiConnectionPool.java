@@ -0,0 +1,184 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.ConnectionException;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestJdbiConnectionPool {
+
+    private static final String DRIVER = "org.postgresql.Driver";
+    private static final String FAKE_URL = "jdbc:fake-shared://db/app";
+
+    /**
+     * Driver whose connections do nothing, enough to borrow and return them
+     */
+    public static class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            boolean[] closed = {false};
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                            case "isValid":
+                                return true;
+                            case "getTransactionIsolation":
+                                return Connection.TRANSACTION_READ_COMMITTED;
+                            case "isClosed":
+                                return closed[0];
+                            case "close":
+                                closed[0] = true;
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return method.getReturnType() == boolean.class ? false : null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:fake-shared:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new FakeDriver());
+    }
+
+    @Test
+    public void testSharedPoolIdHidesUrlAndCredentials() {
+        // No connection is opened: pools are created lazily and minIdle is 0
+        JdbiConnectionPool pool = new JdbiConnectionPool();
+        try {
+            pool.addConnection(new TenantConnection("acme", "jdbc:postgresql://db-1/app", "app", "s3cret", DRIVER, "acme"));
+            pool.addConnection(new TenantConnection("globex", "jdbc:postgresql://db-1/app", "app", "s3cret", DRIVER, "globex"));
+            pool.addConnection(new TenantConnection("initech", "jdbc:postgresql://db-2/app", "app", "s3cret", DRIVER));
+
+            TenantDataSource acme = pool.getDataSource("acme").orElseThrow();
+            TenantDataSource globex = pool.getDataSource("globex").orElseThrow();
+            TenantDataSource initech = pool.getDataSource("initech").orElseThrow();
+            assertSame(acme, globex);
+            assertEquals(2, pool.getPhysicalPoolCount());
+
+            String sharedId = acme.getConfig().getTenantId();
+            assertTrue(sharedId.startsWith("shared:"), sharedId);
+            assertFalse(sharedId.contains("db-1") || sharedId.contains("s3cret"), sharedId);
+            assertNotEquals(sharedId, initech.getConfig().getTenantId());
+        } finally {
+            pool.clear();
+        }
+    }
+
+    @Test
+    public void testSharedPoolIdIsStablePerKey() {
+        assertEquals(JdbiConnectionPool.sharedPoolId("a"), JdbiConnectionPool.sharedPoolId("a"));
+        assertNotEquals(JdbiConnectionPool.sharedPoolId("a"), JdbiConnectionPool.sharedPoolId("b"));
+        assertEquals("shared:".length() + 12, JdbiConnectionPool.sharedPoolId("a").length());
+    }
+
+    @Test
+    public void testSharedPoolGrowsWithItsTenants() {
+        JdbiConnectionPool pool = new JdbiConnectionPool(PoolSettings.builder().minIdle(0).maxSize(2).build());
+        try {
+            pool.addConnection(new TenantConnection("acme", "jdbc:postgresql://db-1/app", "app", "s3cret", DRIVER));
+            pool.addConnection(new TenantConnection("globex", "jdbc:postgresql://db-1/app", "app", "s3cret", DRIVER));
+            pool.addConnection(new TenantConnection("initech", "jdbc:postgresql://db-1/app", "app", "s3cret", DRIVER));
+            // Tenant pools are created lazily: each one joins the shared pool on first use
+            TenantDataSource shared = pool.getDataSource("acme").orElseThrow();
+            assertEquals(2, shared.getMaxSize());
+            pool.getDataSource("globex").orElseThrow();
+            pool.getDataSource("initech").orElseThrow();
+            assertEquals(1, pool.getPhysicalPoolCount());
+            assertEquals(6, shared.getMaxSize());
+            assertEquals(2, pool.getUsage("acme").orElseThrow().getMaxConnections());
+
+            pool.removeConnection("initech");
+            assertEquals(4, shared.getMaxSize());
+        } finally {
+            pool.clear();
+        }
+    }
+
+    @Test
+    public void testBusyTenantCannotStarveTheOthers() {
+        JdbiConnectionPool pool = new JdbiConnectionPool(PoolSettings.builder()
+                .minIdle(0).maxSize(2).acquireTimeout(Duration.ofMillis(100)).build());
+        try {
+            pool.addConnection(new TenantConnection("acme", FAKE_URL, "app", "secret", FakeDriver.class.getName()));
+            pool.addConnection(new TenantConnection("globex", FAKE_URL, "app", "secret", FakeDriver.class.getName()));
+            Jdbi acme = pool.getRequiredConnection("acme");
+            Jdbi globex = pool.getRequiredConnection("globex");
+
+            try (Handle first = acme.open(); Handle second = acme.open()) {
+                // acme already holds its share: it waits on its own quota, not on the shared pool
+                ConnectionException e = assertThrows(ConnectionException.class, acme::open);
+                assertTrue(e.getCause() instanceof SQLTimeoutException, String.valueOf(e.getCause()));
+                assertTrue(e.getCause().getMessage().contains("tenant acme"), e.getCause().getMessage());
+                try (Handle other = globex.open()) {
+                    assertEquals(2, pool.getUsage("acme").orElseThrow().getActiveConnections());
+                    assertEquals(1, pool.getUsage("globex").orElseThrow().getActiveConnections());
+                    assertEquals(3, pool.getDataSource("globex").orElseThrow().getActiveConnections());
+                }
+            }
+            // The failed attempt gave its reservation back
+            try (Handle first = acme.open(); Handle second = acme.open()) {
+                assertEquals(2, pool.getUsage("acme").orElseThrow().getActiveConnections());
+            }
+        } finally {
+            pool.clear();
+        }
+    }
+}
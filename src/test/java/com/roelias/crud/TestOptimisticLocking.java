@@ -0,0 +1,223 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.OptimisticLockException;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestOptimisticLocking {
+
+    @CRUD.Table("accounts")
+    public static class Account {
+        @CRUD.Id
+        private Long id;
+        private String owner;
+        @CRUD.Version
+        private Long version;
+
+        Account(long id, long version) {
+            this.id = id;
+            this.owner = "owner-" + id;
+            this.version = version;
+        }
+    }
+
+    @CRUD.Table("notes")
+    public static class BadlyVersioned {
+        @CRUD.Id
+        private Long id;
+        @CRUD.Version
+        private String version;
+    }
+
+    /**
+     * Connection whose batch updates report the given counts and whose queries find one row
+     */
+    private static final class FakeDatabase {
+        final AtomicInteger commits = new AtomicInteger();
+        final AtomicInteger rollbacks = new AtomicInteger();
+        final int[] batchCounts;
+
+        FakeDatabase(int... batchCounts) {
+            this.batchCounts = batchCounts;
+        }
+
+        Jdbi jdbi() {
+            return Jdbi.create(this::connection);
+        }
+
+        private Connection connection() {
+            boolean[] autoCommit = {true};
+            return proxy(Connection.class, (method, args) -> {
+                switch (method) {
+                    case "getAutoCommit":
+                        return autoCommit[0];
+                    case "setAutoCommit":
+                        autoCommit[0] = (Boolean) args[0];
+                        return null;
+                    case "commit":
+                        commits.incrementAndGet();
+                        return null;
+                    case "rollback":
+                        rollbacks.incrementAndGet();
+                        return null;
+                    case "prepareStatement":
+                        return statement();
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+
+        private PreparedStatement statement() {
+            return proxy(PreparedStatement.class, (method, args) -> {
+                switch (method) {
+                    case "executeBatch":
+                        return batchCounts.clone();
+                    case "execute":
+                        return true;
+                    case "executeQuery":
+                    case "getResultSet":
+                        return oneRow();
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+
+        private static ResultSet oneRow() {
+            boolean[] read = {false};
+            return proxy(ResultSet.class, (method, args) -> {
+                switch (method) {
+                    case "next":
+                        boolean next = !read[0];
+                        read[0] = true;
+                        return next;
+                    case "getInt":
+                        return 1;
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+    }
+
+    private static final Object DEFAULT = new Object();
+
+    private interface Answer {
+        Object answer(String method, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                default:
+                    Object result = answer.answer(method.getName(), args);
+                    if (result != DEFAULT) {
+                        return result;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType == int.class) {
+                        return 0;
+                    }
+                    return returnType == long.class ? (Object) 0L : null;
+            }
+        });
+    }
+
+    @Test
+    public void testConflictRollsBackTheWholeBatch() {
+        // The second row exists but its version no longer matches
+        FakeDatabase database = new FakeDatabase(1, 0, 1);
+        CRUD<Account, Long> accounts = new CRUD<>(database.jdbi(), Account.class, Long.class) { };
+        List<Account> batch = List.of(new Account(1, 4), new Account(2, 7), new Account(3, 1));
+
+        OptimisticLockException error = assertThrows(OptimisticLockException.class, () -> accounts.updateAll(batch));
+
+        assertEquals(2L, error.getId());
+        assertEquals(7L, error.getExpectedVersion());
+        assertEquals(0, database.commits.get());
+        assertEquals(1, database.rollbacks.get());
+        // No entity's version moved, so the whole batch can be retried after a reload
+        assertEquals(Long.valueOf(4), batch.get(0).version);
+        assertEquals(Long.valueOf(7), batch.get(1).version);
+        assertEquals(Long.valueOf(1), batch.get(2).version);
+    }
+
+    @Test
+    public void testSuccessfulBatchIncrementsEveryVersion() {
+        FakeDatabase database = new FakeDatabase(1, 1);
+        CRUD<Account, Long> accounts = new CRUD<>(database.jdbi(), Account.class, Long.class) { };
+        List<Account> batch = List.of(new Account(1, 4), new Account(2, 7));
+
+        assertEquals(2, accounts.updateAll(batch));
+        assertEquals(1, database.commits.get());
+        assertEquals(Long.valueOf(5), batch.get(0).version);
+        assertEquals(Long.valueOf(8), batch.get(1).version);
+    }
+
+    @Test
+    public void testPatchesIncrementButNeverSetTheVersion() {
+        CRUD<Account, Long> accounts = new CRUD<>(new FakeDatabase(1).jdbi(), Account.class, Long.class) { };
+
+        assertThrows(IllegalArgumentException.class, () -> accounts.patch(1L, Map.of("version", 99L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> accounts.patch(1L, Map.of("owner", "someone", "version", 99L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> accounts.workQueue().markOnSuccess(Map.of("version", 0L)).build());
+
+        String sql = accounts.buildByIdUpdate(accounts.buildPatch(Map.of("owner", "someone")));
+        assertTrue(sql.contains("version = version + 1"), sql);
+    }
+
+    @Test
+    public void testVersionFieldMustBeAnInteger() {
+        CRUD<BadlyVersioned, Long> notes = new CRUD<>(new FakeDatabase(1).jdbi(), BadlyVersioned.class, Long.class) { };
+        assertThrows(IllegalArgumentException.class, () -> notes.updateAll(List.of(new BadlyVersioned())));
+    }
+
+    @Test
+    public void testExceptionSerializesWithoutItsKey() throws Exception {
+        Object key = new Object();
+        OptimisticLockException error = new OptimisticLockException("accounts", key, 3L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(error);
+        }
+        OptimisticLockException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (OptimisticLockException) in.readObject();
+        }
+        assertEquals(error.getMessage(), copy.getMessage());
+        assertEquals("accounts", copy.getTable());
+        assertNull(copy.getId());
+        assertNull(copy.getExpectedVersion());
+    }
+}
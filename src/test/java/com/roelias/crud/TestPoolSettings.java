@@ -0,0 +1,44 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestPoolSettings {
+
+    @Test
+    public void testDefaults() {
+        PoolSettings settings = PoolSettings.defaults();
+        assertEquals(10, settings.getMaxSize());
+        assertEquals(0, settings.getMinIdle());
+        assertEquals(Duration.ofSeconds(30), settings.getHousekeepingInterval());
+    }
+
+    @Test
+    public void testRejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> PoolSettings.builder().maxSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> PoolSettings.builder().maxSize(2).minIdle(3).build());
+        assertThrows(IllegalArgumentException.class, () -> PoolSettings.builder().minIdle(-1).build());
+    }
+
+    @Test
+    public void testRejectsIntervalsTheHousekeeperCannotSchedule() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PoolSettings.builder().housekeepingInterval(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> PoolSettings.builder().housekeepingInterval(Duration.ofSeconds(-1)).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> PoolSettings.builder().housekeepingInterval(Duration.ofNanos(500)).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> PoolSettings.builder().validationInterval(Duration.ofMillis(-1)).build());
+    }
+
+    @Test
+    public void testZeroValidationIntervalMeansAlwaysValidate() {
+        PoolSettings settings = PoolSettings.builder().validationInterval(Duration.ZERO).build();
+        assertEquals(Duration.ZERO, settings.getValidationInterval());
+    }
+}
@@ -0,0 +1,224 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantContextException;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.result.ResultIterator;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestQueryPublisher {
+
+    @CRUD.Table("users")
+    public static class User {
+        @CRUD.Id
+        private Long id;
+    }
+
+    /**
+     * Records what the subscriber receives and requests on demand
+     */
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    /**
+     * Handle over a connection that accepts every call and does nothing
+     */
+    private static Handle fakeHandle(AtomicInteger closedConnections) {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return true;
+                        case "close":
+                            closedConnections.incrementAndGet();
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "fake connection";
+                        default:
+                            Class<?> type = method.getReturnType();
+                            return type == boolean.class ? false : type == int.class ? 0 : null;
+                    }
+                });
+        return Jdbi.create(() -> connection).open();
+    }
+
+    private static <T> ResultIterator<T> iterator(List<T> rows, AtomicInteger closedIterators) {
+        Iterator<T> delegate = rows.iterator();
+        return new ResultIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return delegate.next();
+            }
+
+            @Override
+            public void close() {
+                closedIterators.incrementAndGet();
+            }
+
+            @Override
+            public StatementContext getContext() {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testEmitsOnlyWhatWasRequested() {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closedConnections = new AtomicInteger();
+        AtomicInteger closedIterators = new AtomicInteger();
+        QueryPublisher<Integer> publisher = new QueryPublisher<>(() -> () -> {
+            opened.incrementAndGet();
+            return fakeHandle(closedConnections);
+        }, handle -> iterator(List.of(1, 2, 3, 4, 5), closedIterators), Runnable::run);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+        assertEquals(0, opened.get());
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of(1, 2), subscriber.items);
+        assertFalse(subscriber.completed);
+        assertEquals(0, closedConnections.get());
+
+        subscriber.subscription.request(10);
+        assertEquals(List.of(1, 2, 3, 4, 5), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(1, opened.get());
+        assertEquals(1, closedIterators.get());
+        assertEquals(1, closedConnections.get());
+    }
+
+    @Test
+    public void testCancelClosesTheCursorWithoutSignals() {
+        AtomicInteger closedConnections = new AtomicInteger();
+        AtomicInteger closedIterators = new AtomicInteger();
+        QueryPublisher<Integer> publisher = new QueryPublisher<>(() -> () -> fakeHandle(closedConnections),
+                handle -> iterator(List.of(1, 2, 3), closedIterators), Runnable::run);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+
+        assertEquals(List.of(1), subscriber.items);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(1, closedIterators.get());
+        assertEquals(1, closedConnections.get());
+    }
+
+    @Test
+    public void testQueryFailureIsSignalledAndReleasesTheHandle() {
+        AtomicInteger closedConnections = new AtomicInteger();
+        QueryPublisher<Integer> publisher = new QueryPublisher<>(() -> () -> fakeHandle(closedConnections),
+                handle -> {
+                    throw new IllegalStateException("bad query");
+                }, Runnable::run);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(1, closedConnections.get());
+    }
+
+    @Test
+    public void testNonPositiveRequestIsSignalled() {
+        QueryPublisher<Integer> publisher = new QueryPublisher<>(() -> () -> {
+            throw new AssertionError("must not open a handle");
+        }, handle -> iterator(List.of(), new AtomicInteger()), Runnable::run);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testRoutingIsResolvedOnTheSubscribingThread() throws Exception {
+        List<String> opened = new CopyOnWriteArrayList<>();
+        AbstractConnectionPool<Jdbi> pool = new AbstractConnectionPool<>() {
+            @Override
+            protected Jdbi createConnectionObject(TenantConnection connection) {
+                return Jdbi.create(() -> {
+                    opened.add(connection.getTenantId());
+                    throw new SQLException("unreachable");
+                });
+            }
+        };
+        pool.addConnection(new TenantConnection("acme", "jdbc:unused:acme", "app", "secret", "org.postgresql.Driver"));
+        CRUD<User, Long> users = new CRUD<>(User.class, Long.class) { };
+        users.useProvider(new TenantJdbiProvider(pool));
+
+        RecordingSubscriber<User> subscriber = new RecordingSubscriber<>();
+        TenantContext.runAs("acme", () -> users.publishAll().subscribe(subscriber));
+        // Requested outside the tenant and drained on a virtual thread: the tenant of subscribe() applies
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(new ArrayList<>(List.of("acme")), new ArrayList<>(opened));
+
+        RecordingSubscriber<User> noTenant = new RecordingSubscriber<>();
+        users.publishAll().subscribe(noTenant);
+        assertTrue(noTenant.error instanceof TenantContextException);
+        assertEquals(1, opened.size());
+    }
+}
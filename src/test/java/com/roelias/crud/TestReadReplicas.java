@@ -0,0 +1,83 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestReadReplicas {
+
+    @CRUD.Table("users")
+    public static class User {
+        @CRUD.Id
+        private Long id;
+        private String name;
+    }
+
+    private final List<String> opened = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Records which database an operation tried to use, then fails before any SQL runs
+     */
+    private Jdbi database(String name) {
+        return Jdbi.create(() -> {
+            opened.add(name);
+            throw new SQLException("no database in unit tests");
+        });
+    }
+
+    private static void attempt(Runnable operation) {
+        try {
+            operation.run();
+        } catch (RuntimeException expected) {
+            // Every operation fails once the target database has been recorded
+        }
+    }
+
+    @Test
+    public void testReadsRotateOverReplicasAndWritesUsePrimary() {
+        CRUD<User, Long> users = new CRUD<>(database("primary"), User.class, Long.class) { };
+        users.useReplicas(List.of(database("r1"), database("r2")));
+
+        attempt(users::count);
+        attempt(() -> users.findById(1L));
+        attempt(() -> users.existsById(1L));
+        attempt(users::findAll);
+        attempt(() -> users.deleteById(1L));
+        assertEquals(List.of("r1", "r2", "r1", "r2", "primary"), opened);
+    }
+
+    @Test
+    public void testOnPrimaryPinsReads() {
+        CRUD<User, Long> users = new CRUD<>(database("primary"), User.class, Long.class) { };
+        users.useReplicas(List.of(database("r1")));
+
+        attempt(() -> CRUD.onPrimary(users::findAll));
+        attempt(() -> CRUD.onPrimary(() -> CRUD.onPrimary(users::count)));
+        attempt(users::count);
+        assertEquals(List.of("primary", "primary", "r1"), opened);
+    }
+
+    @Test
+    public void testEmptyListRoutesBackToPrimary() {
+        CRUD<User, Long> users = new CRUD<>(database("primary"), User.class, Long.class) { };
+        users.useReplicas(List.of(database("r1")));
+        users.useReplicas(List.of());
+        attempt(users::count);
+        assertEquals(List.of("primary"), opened);
+    }
+
+    @Test
+    public void testReplicasAreRejectedWithAProvider() {
+        CRUD<User, Long> users = new CRUD<>(User.class, Long.class) { };
+        users.useProvider(() -> database("tenant"));
+        assertThrows(IllegalStateException.class, () -> users.useReplicas(List.of(database("r1"))));
+        users.useReplicas(List.of());
+    }
+}
@@ -0,0 +1,120 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestShardRouter {
+
+    private static final List<String> TENANTS = IntStream.range(0, 10_000)
+            .mapToObj(i -> "tenant-" + i)
+            .collect(Collectors.toList());
+
+    private static Shard shard(String id) {
+        return new Shard(id, "jdbc:postgresql://" + id + "/app", "app", "secret", "org.postgresql.Driver", true);
+    }
+
+    private static ShardRouter router(String... shardIds) {
+        ShardRouter router = new ShardRouter();
+        for (String id : shardIds) {
+            router.addShard(shard(id));
+        }
+        return router;
+    }
+
+    @Test
+    public void testRoutingIsDeterministicAndBalanced() {
+        ShardRouter first = router("db1", "db2", "db3", "db4");
+        ShardRouter second = router("db1", "db2", "db3", "db4");
+        Map<String, Integer> counts = new HashMap<>();
+        for (String tenantId : TENANTS) {
+            String shardId = first.route(tenantId).getShardId();
+            assertEquals(shardId, second.route(tenantId).getShardId());
+            counts.merge(shardId, 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        // 160 virtual nodes keep every shard within 25% of the mean
+        counts.values().forEach(count -> assertTrue(count > 1875 && count < 3125, "counts " + counts));
+    }
+
+    @Test
+    public void testAddingAShardMovesAboutOneNth() {
+        ShardRouter router = router("db1", "db2", "db3");
+        RebalancePlan plan = router.planAddShard(shard("db4"), TENANTS);
+        Map<String, String> before = new HashMap<>();
+        TENANTS.forEach(tenantId -> before.put(tenantId, router.route(tenantId).getShardId()));
+
+        router.addShard(shard("db4"));
+        int moved = 0;
+        for (String tenantId : TENANTS) {
+            String now = router.route(tenantId).getShardId();
+            if (!now.equals(before.get(tenantId))) {
+                // Only moves to the new shard: no tenant is shuffled between existing shards
+                assertEquals("db4", now);
+                moved++;
+            }
+        }
+        assertEquals(moved, plan.getMoves().size());
+        assertTrue(moved > 1500 && moved < 3500, "moved " + moved);
+    }
+
+    @Test
+    public void testRemovingAShardOnlyMovesItsTenants() {
+        ShardRouter router = router("db1", "db2", "db3");
+        RebalancePlan plan = router.planRemoveShard("db2", TENANTS);
+        long onDb2 = TENANTS.stream().filter(t -> router.route(t).getShardId().equals("db2")).count();
+        assertEquals(onDb2, plan.getMoves().size());
+        plan.getMoves().forEach(move -> assertEquals("db2", move.getFromShard()));
+    }
+
+    @Test
+    public void testPinOverridesRingUntilShardIsRemoved() {
+        ShardRouter router = router("db1", "db2");
+        String ringShard = router.route("acme").getShardId();
+        String other = ringShard.equals("db1") ? "db2" : "db1";
+
+        router.pin("acme", other);
+        assertEquals(other, router.route("acme").getShardId());
+        router.removeShard(other);
+        assertEquals(ringShard, router.route("acme").getShardId());
+        router.addShard(shard(other));
+        assertEquals(other, router.route("acme").getShardId());
+        router.unpin("acme");
+        assertEquals(ringShard, router.route("acme").getShardId());
+    }
+
+    @Test
+    public void testPinToUnknownShardIsRejected() {
+        ShardRouter router = router("db1");
+        assertThrows(IllegalArgumentException.class, () -> router.pin("acme", "db9"));
+    }
+
+    @Test
+    public void testNoShardsFails() {
+        assertThrows(TenantException.class, () -> new ShardRouter().route("acme"));
+    }
+
+    @Test
+    public void testConnectionUsesTenantSchema() {
+        ShardRouter router = router("db1");
+        TenantConnection connection = router.toConnection("acme");
+        assertEquals("acme", connection.getTenantId());
+        assertEquals("jdbc:postgresql://db1/app", connection.getJdbcUrl());
+        assertEquals("acme", connection.getSchema());
+
+        router.addShard(new Shard("db1", "jdbc:postgresql://db1/app", "app", "secret", "org.postgresql.Driver"));
+        assertNull(router.toConnection("acme").getSchema());
+        assertFalse(router.toConnection("acme").hasSchema());
+    }
+}
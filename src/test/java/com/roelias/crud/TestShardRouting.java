@@ -0,0 +1,82 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestShardRouting {
+
+    /**
+     * Pool whose connection objects are the JDBC URL; URLs containing "down" fail validation
+     */
+    private static final class UrlPool extends AbstractConnectionPool<String> {
+        @Override
+        protected String createConnectionObject(TenantConnection connection) {
+            return connection.getJdbcUrl();
+        }
+
+        @Override
+        protected void checkConnection(String connection) throws Exception {
+            if (connection.contains("down")) {
+                throw new IllegalStateException("unreachable: " + connection);
+            }
+        }
+    }
+
+    private static Shard shard(String id) {
+        return new Shard(id, "jdbc:postgresql://" + id + "/app", "app", "secret", "org.postgresql.Driver", true);
+    }
+
+    @Test
+    public void testRoutedTenantResolvesThroughRouter() {
+        UrlPool pool = new UrlPool();
+        ShardRouter router = new ShardRouter();
+        router.addShard(shard("db1"));
+        pool.setShardRouter(router);
+
+        assertEquals("jdbc:postgresql://db1/app", pool.getRequiredConnection("acme"));
+        assertFalse(pool.hasConnection("acme"));
+        assertEquals("acme", pool.resolveConfig("acme").getSchema());
+    }
+
+    @Test
+    public void testFailedReplaceKeepsRoutedTenantOnTheRouter() {
+        UrlPool pool = new UrlPool();
+        ShardRouter router = new ShardRouter();
+        router.addShard(shard("db1"));
+        pool.setShardRouter(router);
+        pool.getRequiredConnection("acme");
+
+        TenantConnection broken = new TenantConnection("acme", "jdbc:postgresql://down/app", "app", "secret", "org.postgresql.Driver");
+        assertThrows(TenantException.class, () -> pool.replaceConnection(broken));
+
+        // Not pinned to an explicit configuration: the router still owns the tenant
+        assertFalse(pool.hasConnection("acme"));
+        assertEquals("jdbc:postgresql://db1/app", pool.getRequiredConnection("acme"));
+        assertEquals("jdbc:postgresql://db1/app", pool.resolveConfig("acme").getJdbcUrl());
+
+        router.addShard(shard("db2"));
+        router.pin("acme", "db2");
+        assertEquals(1, pool.refreshRouting());
+        assertEquals("jdbc:postgresql://db2/app", pool.getRequiredConnection("acme"));
+    }
+
+    @Test
+    public void testFailedReplaceRestoresExplicitConfiguration() {
+        UrlPool pool = new UrlPool();
+        TenantConnection original = new TenantConnection("acme", "jdbc:postgresql://db1/acme", "app", "secret", "org.postgresql.Driver");
+        pool.addConnection(original);
+        pool.getRequiredConnection("acme");
+
+        TenantConnection broken = new TenantConnection("acme", "jdbc:postgresql://down/acme", "app", "secret", "org.postgresql.Driver");
+        assertThrows(TenantException.class, () -> pool.replaceConnection(broken));
+
+        assertTrue(pool.hasConnection("acme"));
+        assertEquals("jdbc:postgresql://db1/acme", pool.resolveConfig("acme").getJdbcUrl());
+        assertEquals("jdbc:postgresql://db1/acme", pool.getRequiredConnection("acme"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantConfigWatcher {
+
+    /**
+     * Pool whose connection objects are the JDBC URL; URLs containing "down" fail validation
+     */
+    private static final class UrlPool extends AbstractConnectionPool<String> {
+        final List<String> closed = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected String createConnectionObject(TenantConnection connection) {
+            return connection.getJdbcUrl();
+        }
+
+        @Override
+        protected void closeConnection(String connection) {
+            closed.add(connection);
+        }
+
+        @Override
+        protected void checkConnection(String connection) throws Exception {
+            if (connection.contains("down")) {
+                throw new IllegalStateException("unreachable: " + connection);
+            }
+        }
+    }
+
+    private static String tenant(String tenantId, String url) {
+        return "{\"tenantId\":\"" + tenantId + "\",\"jdbcUrl\":\"" + url + "\",\"username\":\"app\","
+                + "\"password\":\"secret\",\"driverClassName\":\"org.postgresql.Driver\"}";
+    }
+
+    @Test
+    public void testReloadAddsReplacesAndRemovesTenants() throws Exception {
+        Path file = Files.createTempFile("tenants", ".json");
+        try {
+            UrlPool pool = new UrlPool();
+            TenantConfigWatcher watcher = new TenantConfigWatcher(pool, file);
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db1/acme") + ","
+                    + tenant("globex", "jdbc:postgresql://db1/globex") + "]");
+            watcher.reload();
+            assertEquals("jdbc:postgresql://db1/acme", pool.getRequiredConnection("acme"));
+            assertEquals("jdbc:postgresql://db1/globex", pool.getRequiredConnection("globex"));
+
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db2/acme") + "]");
+            watcher.reload();
+            assertEquals("jdbc:postgresql://db2/acme", pool.getRequiredConnection("acme"));
+            assertFalse(pool.hasConnection("globex"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDroppedTenantDrainsBeforeClosing() throws Exception {
+        Path file = Files.createTempFile("tenants", ".json");
+        try {
+            UrlPool pool = new UrlPool();
+            pool.setDrainTimeout(Duration.ofMillis(200));
+            TenantConfigWatcher watcher = new TenantConfigWatcher(pool, file);
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db1/acme") + ","
+                    + tenant("globex", "jdbc:postgresql://db1/globex") + "]");
+            watcher.reload();
+            String inUse = pool.getRequiredConnection("globex");
+
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db1/acme") + "]");
+            watcher.reload();
+            // New requests no longer find the tenant, but work in flight keeps its connection
+            assertFalse(pool.hasConnection("globex"));
+            assertNull(pool.getConnection("globex").orElse(null));
+            assertTrue(pool.closed.isEmpty());
+            Thread.sleep(400);
+            assertEquals(List.of(inUse), pool.closed);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testInvalidFileKeepsCurrentConfiguration() throws Exception {
+        Path file = Files.createTempFile("tenants", ".json");
+        try {
+            UrlPool pool = new UrlPool();
+            TenantConfigWatcher watcher = new TenantConfigWatcher(pool, file);
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db1/acme") + "]");
+            watcher.reload();
+
+            Files.writeString(file, "[{\"tenantId\":\"acme\"");
+            assertThrows(TenantException.class, watcher::reload);
+            Files.writeString(file, "[{\"tenantId\":\"acme\",\"jdbcUrl\":\"jdbc:postgresql://db2/acme\"}]");
+            TenantException missing = assertThrows(TenantException.class, watcher::reload);
+            assertTrue(missing.getMessage().contains("'username' for tenant acme"), missing.getMessage());
+
+            assertEquals("jdbc:postgresql://db1/acme", pool.getRequiredConnection("acme"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testTenantFailingValidationKeepsPreviousConnection() throws Exception {
+        Path file = Files.createTempFile("tenants", ".json");
+        try {
+            UrlPool pool = new UrlPool();
+            TenantConfigWatcher watcher = new TenantConfigWatcher(pool, file);
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://db1/acme") + "]");
+            watcher.reload();
+            pool.getRequiredConnection("acme");
+
+            Files.writeString(file, "[" + tenant("acme", "jdbc:postgresql://down/acme") + ","
+                    + tenant("globex", "jdbc:postgresql://db1/globex") + "]");
+            watcher.reload();
+            assertEquals("jdbc:postgresql://db1/acme", pool.getRequiredConnection("acme"));
+            assertEquals("jdbc:postgresql://db1/globex", pool.getRequiredConnection("globex"));
+            assertNull(pool.getConnection("initech").orElse(null));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
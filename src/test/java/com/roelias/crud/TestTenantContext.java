@@ -0,0 +1,61 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TestTenantContext {
+
+    @Test
+    public void testRunAsRestoresPreviousTenant() throws Exception {
+        TenantContext.setTenantId("outer");
+        try {
+            TenantContext.runAs("inner", () -> assertEquals("inner", TenantContext.getTenantId()));
+            assertEquals("outer", TenantContext.getTenantId());
+            assertEquals("x", TenantContext.callAs("x", TenantContext::getTenantId));
+            assertEquals("outer", TenantContext.getTenantId());
+        } finally {
+            TenantContext.clear();
+        }
+        TenantContext.runAs("inner", () -> { });
+        assertFalse(TenantContext.hasTenant());
+    }
+
+    @Test
+    public void testWrappedExecutorCarriesSubmitterTenant() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        ExecutorService executor = TenantContext.wrap(threads);
+        try {
+            String seen = TenantContext.callAs("acme", () -> executor.submit(TenantContext::getTenantId).get());
+            assertEquals("acme", seen);
+            // Pool threads do not keep the tenant after the task
+            assertNull(threads.submit(TenantContext::getTenantId).get());
+
+            String async = TenantContext.callAs("globex", () ->
+                    CompletableFuture.supplyAsync(TenantContext::getTenantId, TenantContext.wrap((Executor) threads)))
+                    .get();
+            assertEquals("globex", async);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWrapCapturesTenantAtWrapTime() throws Exception {
+        Runnable[] task = new Runnable[1];
+        String[] seen = new String[1];
+        Runnable read = () -> seen[0] = TenantContext.getTenantId();
+        TenantContext.runAs("acme", () -> task[0] = TenantContext.wrap(read));
+        Thread thread = new Thread(task[0]);
+        thread.start();
+        thread.join();
+        assertEquals("acme", seen[0]);
+    }
+}
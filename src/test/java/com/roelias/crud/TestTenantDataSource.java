@@ -0,0 +1,185 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantDataSource {
+
+    private static final String URL = "jdbc:fake-pool://db/app";
+
+    // Sessions opened by the driver, in order
+    private static final List<Session> SESSIONS = new CopyOnWriteArrayList<>();
+
+    // Runs inside the pool's reset of a returned connection, before it goes back to idle
+    private static volatile Runnable onReset;
+
+    private static final class Session {
+        boolean autoCommit = true;
+        boolean readOnly;
+        int isolation = Connection.TRANSACTION_READ_COMMITTED;
+        int rollbacks;
+        boolean closed;
+    }
+
+    /**
+     * Driver whose connections only keep their session state
+     */
+    public static class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Session session = new Session();
+            SESSIONS.add(session);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                Runnable hook = onReset;
+                                if (hook != null) {
+                                    hook.run();
+                                }
+                                return session.autoCommit;
+                            case "setAutoCommit":
+                                session.autoCommit = (Boolean) args[0];
+                                return null;
+                            case "isReadOnly":
+                                return session.readOnly;
+                            case "setReadOnly":
+                                session.readOnly = (Boolean) args[0];
+                                return null;
+                            case "getTransactionIsolation":
+                                return session.isolation;
+                            case "setTransactionIsolation":
+                                session.isolation = (Integer) args[0];
+                                return null;
+                            case "rollback":
+                                session.rollbacks++;
+                                return null;
+                            case "isValid":
+                                return true;
+                            case "isClosed":
+                                return session.closed;
+                            case "close":
+                                session.closed = true;
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return method.getReturnType() == boolean.class ? false : null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:fake-pool:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new FakeDriver());
+    }
+
+    @BeforeEach
+    public void resetDriver() {
+        SESSIONS.clear();
+        onReset = null;
+    }
+
+    private static TenantDataSource singleConnectionPool() {
+        TenantConnection tenant = new TenantConnection("acme", URL, "app", "secret", FakeDriver.class.getName());
+        return TenantDataSource.create(tenant, PoolSettings.builder().minIdle(0).maxSize(1).build());
+    }
+
+    @Test
+    public void testSessionStateIsRestoredOnReturn() throws Exception {
+        try (TenantDataSource pool = singleConnectionPool()) {
+            try (Connection connection = pool.getConnection()) {
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            }
+            try (Connection connection = pool.getConnection()) {
+                assertTrue(connection.getAutoCommit());
+                assertFalse(connection.isReadOnly());
+                assertEquals(Connection.TRANSACTION_READ_COMMITTED, connection.getTransactionIsolation());
+            }
+            assertEquals(1, SESSIONS.size());
+            assertEquals(1, SESSIONS.get(0).rollbacks);
+        }
+    }
+
+    @Test
+    public void testConnectionReturnedAfterCloseIsClosed() throws Exception {
+        TenantDataSource pool = singleConnectionPool();
+        Connection connection = pool.getConnection();
+        pool.close();
+        connection.close();
+
+        assertTrue(SESSIONS.get(0).closed);
+        assertEquals(0, pool.getTotalConnections());
+    }
+
+    @Test
+    public void testConnectionReturnedWhileClosingIsClosed() throws Exception {
+        TenantDataSource pool = singleConnectionPool();
+        Connection connection = pool.getConnection();
+        // close() runs after release() checked the pool was open but before the connection is idle again
+        onReset = () -> {
+            onReset = null;
+            pool.close();
+        };
+        connection.close();
+
+        assertTrue(pool.isClosed());
+        assertTrue(SESSIONS.get(0).closed);
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getTotalConnections());
+    }
+}
@@ -0,0 +1,121 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantFanOut {
+
+    private static final class IdPool extends AbstractConnectionPool<String> {
+        @Override
+        protected String createConnectionObject(TenantConnection connection) {
+            return "conn-" + connection.getTenantId();
+        }
+    }
+
+    private static IdPool pool(int tenants) {
+        IdPool pool = new IdPool();
+        for (int i = 0; i < tenants; i++) {
+            pool.addConnection(new TenantConnection("t" + i, "jdbc:postgresql://db/t" + i, "app", "secret", "org.postgresql.Driver"));
+        }
+        return pool;
+    }
+
+    @Test
+    public void testRunsEachTenantWithItsContextAndConnection() {
+        FanOutResult<String> result = new TenantFanOut<>(pool(5))
+                .execute((tenantId, connection) -> TenantContext.getTenantId() + "/" + connection);
+        assertTrue(result.isComplete());
+        assertEquals(5, result.getResults().size());
+        result.getResults().forEach((tenantId, value) -> assertEquals(tenantId + "/conn-" + tenantId, value));
+    }
+
+    @Test
+    public void testFailuresAreReportedPerTenant() {
+        FanOutResult<Integer> result = new TenantFanOut<>(pool(4))
+                .tenants(List.of("t0", "t1", "t2"))
+                .execute((tenantId, connection) -> {
+                    if (tenantId.equals("t1")) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return 1;
+                });
+        assertFalse(result.isComplete());
+        assertEquals(List.of("t0", "t2"), new ArrayList<>(result.getResults().keySet()));
+        assertEquals("boom", result.getFailures().get("t1").getMessage());
+        assertEquals(List.of(1, 1), result.merge(List::of));
+    }
+
+    @Test
+    public void testParallelismIsCapped() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        new TenantFanOut<>(pool(12)).parallelism(3).execute((tenantId, connection) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return null;
+        });
+        assertTrue(peak.get() <= 3, "peak " + peak.get());
+    }
+
+    @Test
+    public void testSlowTenantTimesOut() {
+        FanOutResult<String> result = new TenantFanOut<>(pool(2))
+                .timeout(Duration.ofMillis(100))
+                .execute((tenantId, connection) -> {
+                    if (tenantId.equals("t1")) {
+                        Thread.sleep(5_000);
+                    }
+                    return tenantId;
+                });
+        assertEquals(Map.of("t0", "t0"), result.getResults());
+        assertTrue(result.getFailures().get("t1") instanceof TimeoutException);
+    }
+
+    @Test
+    public void testStreamDeliversResultsWithoutAccumulating() {
+        List<String> seen = new ArrayList<>();
+        FanOutResult<String> result = new TenantFanOut<>(pool(3))
+                .stream((tenantId, connection) -> tenantId, (tenantId, value) -> seen.add(value));
+        assertEquals(3, seen.size());
+        assertTrue(result.getResults().isEmpty());
+    }
+
+    @Test
+    public void testConsumerFailureCancelsPendingTenants() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        IllegalStateException error = assertThrows(IllegalStateException.class, () ->
+                new TenantFanOut<>(pool(6)).parallelism(6).stream((tenantId, connection) -> {
+                    started.incrementAndGet();
+                    if (!tenantId.equals("t0")) {
+                        try {
+                            Thread.sleep(5_000);
+                        } catch (InterruptedException e) {
+                            interrupted.incrementAndGet();
+                            throw e;
+                        }
+                    }
+                    return tenantId;
+                }, (tenantId, value) -> {
+                    throw new IllegalStateException("consumer failed on " + tenantId);
+                }));
+        assertEquals("consumer failed on t0", error.getMessage());
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (interrupted.get() < started.get() - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(started.get() - 1, interrupted.get());
+    }
+}
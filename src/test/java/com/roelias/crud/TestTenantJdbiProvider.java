@@ -0,0 +1,62 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantContextException;
+import com.roelias.crud.Exceptions.TenantNotFoundException;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestTenantJdbiProvider {
+
+    @CRUD.Table("users")
+    public static class User {
+        @CRUD.Id
+        private Long id;
+    }
+
+    /**
+     * Never connects: Jdbi opens connections lazily
+     */
+    private static final class LazyJdbiPool extends AbstractConnectionPool<Jdbi> {
+        @Override
+        protected Jdbi createConnectionObject(TenantConnection connection) {
+            return Jdbi.create(connection.getJdbcUrl());
+        }
+    }
+
+    private static LazyJdbiPool pool() {
+        LazyJdbiPool pool = new LazyJdbiPool();
+        pool.addConnection(new TenantConnection("acme", "jdbc:unused:acme", "app", "secret", "org.postgresql.Driver"));
+        pool.addConnection(new TenantConnection("globex", "jdbc:unused:globex", "app", "secret", "org.postgresql.Driver"));
+        return pool;
+    }
+
+    @Test
+    public void testResolvesTheJdbiOfTheCurrentTenant() throws Exception {
+        LazyJdbiPool pool = pool();
+        CRUD<User, Long> users = new CRUD<>(User.class, Long.class) { };
+        users.useProvider(new TenantJdbiProvider(pool));
+
+        Jdbi acme = TenantContext.callAs("acme", users::getConfiguredJdbi);
+        assertSame(pool.getRequiredConnection("acme"), acme);
+        assertSame(acme, TenantContext.callAs("acme", users::getConfiguredJdbi));
+        assertNotSame(acme, TenantContext.callAs("globex", users::getConfiguredJdbi));
+    }
+
+    @Test
+    public void testCustomResolver() {
+        LazyJdbiPool pool = pool();
+        TenantJdbiProvider provider = new TenantJdbiProvider(pool, () -> "globex");
+        assertSame(pool.getRequiredConnection("globex"), provider.getJdbi());
+    }
+
+    @Test
+    public void testMissingOrUnknownTenantFails() {
+        TenantJdbiProvider provider = new TenantJdbiProvider(pool());
+        assertThrows(TenantContextException.class, provider::getJdbi);
+        TenantContext.runAs("initech", () -> assertThrows(TenantNotFoundException.class, provider::getJdbi));
+    }
+}
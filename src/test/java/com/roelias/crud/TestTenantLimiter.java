@@ -0,0 +1,94 @@
+package com.roelias.crud;
+
+import com.roelias.crud.Exceptions.TenantLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantLimiter {
+
+    private static TenantLimits.Builder failFast() {
+        return TenantLimits.builder().policy(TenantLimits.Policy.FAIL_FAST);
+    }
+
+    @Test
+    public void testUnlimitedNeverRejects() throws Exception {
+        TenantLimiter limiter = new TenantLimiter(TenantLimits.unlimited());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("done", limiter.call("t1", () -> "done"));
+        }
+        assertEquals(0, limiter.getInFlight("t1"));
+        assertEquals(0, limiter.getRejections("t1"));
+    }
+
+    @Test
+    public void testBulkheadRejectsAndPermitReleasesOnce() {
+        TenantLimiter limiter = new TenantLimiter(failFast().maxConcurrent(2).build());
+        TenantLimiter.Permit first = limiter.acquire("t1");
+        TenantLimiter.Permit second = limiter.acquire("t1");
+        assertEquals(2, limiter.getInFlight("t1"));
+        assertThrows(TenantLimitExceededException.class, () -> limiter.acquire("t1"));
+        assertEquals(1, limiter.getRejections("t1"));
+
+        first.close();
+        first.close();
+        assertEquals(1, limiter.getInFlight("t1"));
+        second.close();
+        assertEquals(0, limiter.getInFlight("t1"));
+    }
+
+    @Test
+    public void testTenantsHaveSeparateLimits() {
+        TenantLimiter limiter = new TenantLimiter(failFast().maxConcurrent(1).build());
+        limiter.setLimits("big", failFast().maxConcurrent(3).build());
+        limiter.acquire("small");
+        assertThrows(TenantLimitExceededException.class, () -> limiter.acquire("small"));
+        limiter.acquire("big");
+        limiter.acquire("big");
+        limiter.acquire("big");
+        assertEquals(3, limiter.getInFlight("big"));
+        assertEquals(0, limiter.getRejections("big"));
+    }
+
+    @Test
+    public void testRateAllowsBurstThenRejects() {
+        // One token per minute: only the burst can pass during the test
+        TenantLimiter limiter = new TenantLimiter(failFast().ratePerSecond(1.0 / 60).burst(3).build());
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("t1").close();
+        }
+        assertThrows(TenantLimitExceededException.class, () -> limiter.acquire("t1"));
+        assertEquals(1, limiter.getRejections("t1"));
+    }
+
+    @Test
+    public void testBulkheadRejectionDoesNotConsumeRate() {
+        TenantLimiter limiter = new TenantLimiter(failFast().maxConcurrent(1).ratePerSecond(1.0 / 60).burst(2).build());
+        TenantLimiter.Permit running = limiter.acquire("t1");
+        for (int i = 0; i < 5; i++) {
+            assertThrows(TenantLimitExceededException.class, () -> limiter.acquire("t1"));
+        }
+        running.close();
+        // The second token of the burst is still available
+        limiter.acquire("t1").close();
+        assertThrows(TenantLimitExceededException.class, () -> limiter.acquire("t1"));
+    }
+
+    @Test
+    public void testQueuePolicyWaitsForARateSlot() {
+        TenantLimiter limiter = new TenantLimiter(TenantLimits.builder()
+                .ratePerSecond(20).burst(1)
+                .policy(TenantLimits.Policy.QUEUE).queueTimeout(Duration.ofSeconds(1))
+                .build());
+        limiter.acquire("t1").close();
+        long start = System.nanoTime();
+        limiter.acquire("t1").close();
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waitedMillis >= 40, "waited " + waitedMillis + " ms");
+        assertEquals(0, limiter.getRejections("t1"));
+    }
+}
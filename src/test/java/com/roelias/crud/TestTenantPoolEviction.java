@@ -0,0 +1,106 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantPoolEviction {
+
+    /**
+     * Pool whose connection objects are the tenant id; records every close
+     */
+    private static final class RecordingPool extends AbstractConnectionPool<String> {
+        final List<String> created = new CopyOnWriteArrayList<>();
+        final List<String> closed = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected String createConnectionObject(TenantConnection connection) {
+            created.add(connection.getTenantId());
+            return connection.getTenantId();
+        }
+
+        @Override
+        protected void closeConnection(String connection) {
+            closed.add(connection);
+        }
+    }
+
+    private static RecordingPool pool(String... tenantIds) {
+        RecordingPool pool = new RecordingPool();
+        pool.setDrainTimeout(Duration.ZERO);
+        for (String tenantId : tenantIds) {
+            pool.addConnection(new TenantConnection(tenantId, "jdbc:postgresql://db/" + tenantId, "app", "secret", "org.postgresql.Driver"));
+        }
+        return pool;
+    }
+
+    @Test
+    public void testConnectionsAreCreatedLazily() {
+        RecordingPool pool = pool("a", "b", "c");
+        assertTrue(pool.created.isEmpty());
+        pool.getRequiredConnection("b");
+        pool.getRequiredConnection("b");
+        assertEquals(List.of("b"), pool.created);
+        assertEquals(Set.of("b"), pool.getActiveTenants());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTenantIsClosedAtCapacity() throws InterruptedException {
+        RecordingPool pool = pool("a", "b", "c");
+        pool.setMaxActiveTenants(2);
+        pool.getRequiredConnection("a");
+        Thread.sleep(1);
+        pool.getRequiredConnection("b");
+        Thread.sleep(1);
+        pool.getRequiredConnection("a");
+        Thread.sleep(1);
+        pool.getRequiredConnection("c");
+
+        assertEquals(List.of("b"), pool.closed);
+        assertEquals(Set.of("a", "c"), pool.getActiveTenants());
+        assertEquals(1, pool.getMetrics().getEvictedCapacity());
+
+        // An evicted tenant keeps its configuration and is recreated on the next access
+        pool.getRequiredConnection("b");
+        assertEquals(List.of("a", "b", "c", "b"), pool.created);
+    }
+
+    @Test
+    public void testIdleTenantsAreEvicted() throws InterruptedException {
+        RecordingPool pool = pool("a", "b");
+        pool.getRequiredConnection("a");
+        pool.getRequiredConnection("b");
+        pool.setTenantIdleTimeout(Duration.ofMillis(50));
+        try {
+            Thread.sleep(80);
+            pool.getRequiredConnection("b");
+            pool.evictIdleTenants();
+        } finally {
+            pool.setTenantIdleTimeout(Duration.ZERO);
+        }
+        assertEquals(List.of("a"), pool.closed);
+        assertEquals(Set.of("b"), pool.getActiveTenants());
+        assertEquals(1, pool.getMetrics().getEvictedIdle());
+    }
+
+    @Test
+    public void testEvictedConnectionDrainsBeforeClosing() throws InterruptedException {
+        RecordingPool pool = pool("a", "b");
+        pool.setDrainTimeout(Duration.ofMillis(200));
+        pool.setMaxActiveTenants(1);
+        String inUse = pool.getRequiredConnection("a");
+        pool.getRequiredConnection("b");
+
+        // "a" was evicted, but whoever resolved it just before can keep using it for a while
+        assertEquals(Set.of("b"), pool.getActiveTenants());
+        assertTrue(pool.closed.isEmpty());
+        Thread.sleep(400);
+        assertEquals(List.of(inUse), pool.closed);
+    }
+}
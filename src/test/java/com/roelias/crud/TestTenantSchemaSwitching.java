@@ -0,0 +1,142 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestTenantSchemaSwitching {
+
+    private static final String URL = "jdbc:fake-schemas://shared-server/app";
+
+    // setCatalog calls received by the physical connections (MySQL switches the database)
+    private static final List<String> CATALOGS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Driver whose connections only record the database they are switched to
+     */
+    public static class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            boolean[] closed = {false};
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setCatalog":
+                                CATALOGS.add((String) args[0]);
+                                return null;
+                            case "getAutoCommit":
+                            case "isValid":
+                                return true;
+                            case "isClosed":
+                                return closed[0];
+                            case "close":
+                                closed[0] = true;
+                                return null;
+                            case "getTransactionIsolation":
+                                return Connection.TRANSACTION_READ_COMMITTED;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return method.getReturnType() == boolean.class ? false : null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:fake-schemas:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new FakeDriver());
+    }
+
+    private static TenantDataSource singleConnectionPool() {
+        CATALOGS.clear();
+        TenantConnection shared = new TenantConnection("shared", URL, "app", "secret", FakeDriver.class.getName());
+        return TenantDataSource.create(shared, PoolSettings.builder().minIdle(0).maxSize(1).build());
+    }
+
+    @Test
+    public void testSwitchesOnlyWhenTheSchemaChanges() throws Exception {
+        try (TenantDataSource pool = singleConnectionPool()) {
+            pool.getSchemaConnection("acme").close();
+            pool.getSchemaConnection("acme").close();
+            pool.getSchemaConnection("globex").close();
+            pool.getSchemaConnection("globex").close();
+            pool.getSchemaConnection("acme").close();
+
+            assertEquals(List.of("acme", "globex", "acme"), CATALOGS);
+            assertEquals(3, pool.getSchemaSwitches());
+            assertEquals(1, pool.getTotalConnections());
+        }
+    }
+
+    @Test
+    public void testApplicationSwitchInvalidatesTheCache() throws Exception {
+        try (TenantDataSource pool = singleConnectionPool()) {
+            try (Connection connection = pool.getSchemaConnection("acme")) {
+                connection.setCatalog("reporting");
+            }
+            pool.getSchemaConnection("acme").close();
+
+            assertEquals(List.of("acme", "reporting", "acme"), CATALOGS);
+            assertEquals(2, pool.getSchemaSwitches());
+        }
+    }
+
+    @Test
+    public void testNoSchemaKeepsTheConnectionAsIs() throws Exception {
+        try (TenantDataSource pool = singleConnectionPool()) {
+            pool.getSchemaConnection("acme").close();
+            pool.getConnection().close();
+            pool.getSchemaConnection("acme").close();
+
+            assertEquals(List.of("acme"), CATALOGS);
+        }
+    }
+}
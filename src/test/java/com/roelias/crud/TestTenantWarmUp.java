@@ -0,0 +1,162 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTenantWarmUp {
+
+    private static final String URL = "jdbc:fake-warmup://shared-server/app";
+
+    /**
+     * Driver whose connections are always valid and prepare statements without a server
+     */
+    public static class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? fake(Connection.class) : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:fake-warmup:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return fake(PreparedStatement.class);
+                case "isValid":
+                case "getAutoCommit":
+                    return true;
+                case "getTransactionIsolation":
+                    return Connection.TRANSACTION_READ_COMMITTED;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return method.getReturnType() == boolean.class ? false : null;
+            }
+        });
+    }
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(new FakeDriver());
+    }
+
+    private static JdbiConnectionPool sharedPool(int tenants) {
+        JdbiConnectionPool pool = new JdbiConnectionPool(PoolSettings.builder()
+                .minIdle(3)
+                .maxSize(4)
+                .acquireTimeout(Duration.ofSeconds(3))
+                .build());
+        for (int i = 0; i < tenants; i++) {
+            pool.addConnection(new TenantConnection("tenant-" + i, URL, "app", "secret", FakeDriver.class.getName()));
+        }
+        return pool;
+    }
+
+    @Test
+    public void testSharedPoolIsWarmedOnce() {
+        JdbiConnectionPool pool = sharedPool(10);
+        try {
+            WarmUpReport report = pool.warmUp().parallelism(8).statements("SELECT 1").run();
+
+            assertEquals(10, report.getWarmed().size());
+            assertTrue(report.getFailures().isEmpty(), report.getFailures().toString());
+            assertEquals(3, report.getConnectionsValidated());
+            assertEquals(3, report.getStatementsPrepared());
+            // Without de-duplication the tasks would hold 8 x 3 connections of a pool of 4 until the timeout
+            assertTrue(report.getElapsed().compareTo(Duration.ofSeconds(2)) < 0, report.getElapsed().toString());
+        } finally {
+            pool.clear();
+        }
+    }
+
+    @Test
+    public void testHoldsOnlyWhatThePoolCanLend() throws Exception {
+        JdbiConnectionPool pool = sharedPool(1);
+        List<Connection> busy = new ArrayList<>();
+        try {
+            TenantDataSource dataSource = pool.getDataSource("tenant-0").orElseThrow();
+            for (int i = 0; i < 3; i++) {
+                busy.add(dataSource.getConnection());
+            }
+            WarmUpReport report = pool.warmUp().run();
+
+            assertEquals(List.of("tenant-0"), report.getWarmed());
+            assertEquals(1, report.getConnectionsValidated());
+            assertTrue(report.getElapsed().compareTo(Duration.ofSeconds(2)) < 0, report.getElapsed().toString());
+        } finally {
+            for (Connection connection : busy) {
+                connection.close();
+            }
+            pool.clear();
+        }
+    }
+
+    @Test
+    public void testNamedParametersBecomePlaceholders() {
+        assertEquals("INSERT INTO users (name, email) VALUES (?, ?)",
+                TenantWarmUp.toJdbc("INSERT INTO users (name, email) VALUES (:name, :email)"));
+        assertEquals("SELECT * FROM users WHERE id = ?",
+                TenantWarmUp.toJdbc("SELECT * FROM users WHERE id = :id"));
+    }
+
+    @Test
+    public void testPostgresqlCastsAreKept() {
+        assertEquals("UPDATE users SET tags = ?::text[], meta = CAST(? AS jsonb) WHERE id = ?",
+                TenantWarmUp.toJdbc("UPDATE users SET tags = :tags::text[], meta = CAST(:meta AS jsonb) WHERE id = :id"));
+        assertEquals("SELECT created::date FROM t", TenantWarmUp.toJdbc("SELECT created::date FROM t"));
+    }
+
+    @Test
+    public void testParameterNamesWithDigitsAndUnderscores() {
+        assertEquals("WHERE a = ? AND b = ?", TenantWarmUp.toJdbc("WHERE a = :user_id2 AND b = :_x"));
+    }
+}
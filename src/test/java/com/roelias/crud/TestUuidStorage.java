@@ -0,0 +1,53 @@
+package com.roelias.crud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestUuidStorage {
+
+    // Example from the MySQL manual for UUID_TO_BIN / BIN_TO_UUID
+    private static final UUID SAMPLE = UUID.fromString("6ccd780c-baba-1026-9564-5b8c656024db");
+
+    @Test
+    public void testBinaryKeepsRfcByteOrder() {
+        byte[] bytes = CRUD.uuidToBytes(SAMPLE, false);
+        assertArrayEquals(HexFormat.of().parseHex("6CCD780CBABA102695645B8C656024DB"), bytes);
+        assertEquals(SAMPLE, CRUD.bytesToUuid(bytes, false));
+    }
+
+    @Test
+    public void testBinarySwappedMatchesUuidToBinWithSwapFlag() {
+        // SELECT HEX(UUID_TO_BIN('6ccd780c-baba-1026-9564-5b8c656024db', 1))
+        byte[] bytes = CRUD.uuidToBytes(SAMPLE, true);
+        assertArrayEquals(HexFormat.of().parseHex("1026BABA6CCD780C95645B8C656024DB"), bytes);
+        assertEquals(SAMPLE, CRUD.bytesToUuid(bytes, true));
+    }
+
+    @Test
+    public void testRoundTripRandomUuids() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            assertEquals(uuid, CRUD.bytesToUuid(CRUD.uuidToBytes(uuid, false), false));
+            assertEquals(uuid, CRUD.bytesToUuid(CRUD.uuidToBytes(uuid, true), true));
+        }
+    }
+
+    @Test
+    public void testRoundTripExtremeBits() {
+        UUID allOnes = new UUID(-1L, -1L);
+        UUID zero = new UUID(0L, 0L);
+        assertEquals(allOnes, CRUD.bytesToUuid(CRUD.uuidToBytes(allOnes, true), true));
+        assertEquals(zero, CRUD.bytesToUuid(CRUD.uuidToBytes(zero, true), true));
+    }
+
+    @Test
+    public void testRejectsWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> CRUD.bytesToUuid(new byte[15], false));
+    }
+}
@@ -0,0 +1,242 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestWorkQueue {
+
+    @CRUD.Table("jobs")
+    public static class Job {
+        @CRUD.Id
+        private Long id;
+        private String status;
+    }
+
+    /**
+     * Connection whose SELECTs return the given rows and whose updates affect one row each
+     */
+    private static final class FakeDatabase {
+        final List<String> sql = new CopyOnWriteArrayList<>();
+        final AtomicInteger commits = new AtomicInteger();
+        final AtomicInteger rollbacks = new AtomicInteger();
+        final AtomicInteger batchedRows = new AtomicInteger();
+        final List<Map<String, Object>> claimable;
+
+        FakeDatabase(List<Map<String, Object>> claimable) {
+            this.claimable = claimable;
+        }
+
+        Jdbi jdbi() {
+            return Jdbi.create(() -> {
+                boolean[] autoCommit = {true};
+                return proxy(Connection.class, (method, args) -> {
+                    switch (method) {
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "setAutoCommit":
+                            autoCommit[0] = (Boolean) args[0];
+                            return DEFAULT;
+                        case "commit":
+                            commits.incrementAndGet();
+                            return DEFAULT;
+                        case "rollback":
+                            rollbacks.incrementAndGet();
+                            return DEFAULT;
+                        case "prepareStatement":
+                            sql.add((String) args[0]);
+                            return statement();
+                        default:
+                            return DEFAULT;
+                    }
+                });
+            });
+        }
+
+        private PreparedStatement statement() {
+            int[] batched = {0};
+            return proxy(PreparedStatement.class, (method, args) -> {
+                switch (method) {
+                    case "execute":
+                        return sql.get(sql.size() - 1).startsWith("SELECT");
+                    case "executeQuery":
+                    case "getResultSet":
+                        return rows(claimable);
+                    case "addBatch":
+                        batched[0]++;
+                        return DEFAULT;
+                    case "executeBatch":
+                        batchedRows.addAndGet(batched[0]);
+                        int[] counts = new int[batched[0]];
+                        Arrays.fill(counts, 1);
+                        return counts;
+                    case "getUpdateCount":
+                    case "executeUpdate":
+                        return 1;
+                    case "getLargeUpdateCount":
+                        return 1L;
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+
+        private static ResultSet rows(List<Map<String, Object>> rows) {
+            Iterator<Map<String, Object>> iterator = rows.iterator();
+            Object[] current = {null};
+            return proxy(ResultSet.class, (method, args) -> {
+                switch (method) {
+                    case "next":
+                        current[0] = iterator.hasNext() ? iterator.next() : null;
+                        return current[0] != null;
+                    case "getObject":
+                        return ((Map<?, ?>) current[0]).get(args[0]);
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+    }
+
+    private static final Object DEFAULT = new Object();
+
+    private interface Answer {
+        Object answer(String method, Object[] args) throws SQLException;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Object result = answer.answer(method.getName(), args);
+                    if (result != DEFAULT) {
+                        return result;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType == int.class) {
+                        return 0;
+                    }
+                    return returnType == long.class ? (Object) 0L : null;
+            }
+        });
+    }
+
+    private static List<Map<String, Object>> pending(long... ids) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (long id : ids) {
+            rows.add(Map.of("id", id, "status", "PENDING"));
+        }
+        return rows;
+    }
+
+    private static CRUD<Job, Long> jobs(FakeDatabase database) {
+        return new CRUD<>(database.jdbi(), Job.class, Long.class) { };
+    }
+
+    @Test
+    public void testEmptyClaimReturnsZero() {
+        FakeDatabase database = new FakeDatabase(List.of());
+        WorkQueue<Job, Long> queue = jobs(database).workQueue().build();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(0, queue.poll(rows -> calls.incrementAndGet()));
+        assertEquals(0, calls.get());
+        assertEquals(1, database.sql.size());
+        assertEquals(0, database.rollbacks.get());
+    }
+
+    @Test
+    public void testProcessedRowsAreDeletedByDefault() {
+        FakeDatabase database = new FakeDatabase(pending(1, 2));
+        WorkQueue<Job, Long> queue = jobs(database).workQueue()
+                .where("status = :status").param("status", "PENDING")
+                .build();
+        List<Long> seen = new ArrayList<>();
+
+        assertEquals(2, queue.poll(rows -> rows.forEach(job -> seen.add(job.id))));
+        assertEquals(List.of(1L, 2L), seen);
+        assertTrue(database.sql.get(0).contains("FOR UPDATE SKIP LOCKED"), database.sql.get(0));
+        assertEquals("DELETE FROM jobs WHERE id = ?", database.sql.get(1));
+        assertEquals(2, database.batchedRows.get());
+        assertEquals(1, database.commits.get());
+    }
+
+    @Test
+    public void testMarkOnSuccessUpdatesInsteadOfDeleting() {
+        FakeDatabase database = new FakeDatabase(pending(1, 2, 3));
+        WorkQueue<Job, Long> queue = jobs(database).workQueue()
+                .markOnSuccess(Map.of("status", "DONE"))
+                .build();
+
+        assertEquals(3, queue.poll(rows -> { }));
+        assertTrue(database.sql.get(1).startsWith("UPDATE jobs SET status = ?"), database.sql.get(1));
+        assertEquals(3, database.batchedRows.get());
+        assertEquals(1, database.commits.get());
+    }
+
+    @Test
+    public void testHandlerFailureRollsBackTheClaim() {
+        FakeDatabase database = new FakeDatabase(pending(1, 2));
+        WorkQueue<Job, Long> queue = jobs(database).workQueue().build();
+
+        assertThrows(IllegalStateException.class, () -> queue.poll(rows -> {
+            throw new IllegalStateException("handler failed");
+        }));
+        assertEquals(1, database.sql.size());
+        assertEquals(0, database.commits.get());
+        assertTrue(database.rollbacks.get() > 0);
+    }
+
+    @Test
+    public void testPollOpensTheReadYourWritesWindow() {
+        FakeDatabase database = new FakeDatabase(pending(1));
+        CRUD<Job, Long> jobs = jobs(database);
+        AtomicInteger replicaReads = new AtomicInteger();
+        jobs.useReplicas(List.of(Jdbi.create(() -> {
+            replicaReads.incrementAndGet();
+            throw new SQLException("replica unreachable");
+        })));
+        jobs.setReadYourWritesWindow(Duration.ofMinutes(1));
+        WorkQueue<Job, Long> queue = jobs.workQueue().markOnSuccess(Map.of("status", "DONE")).build();
+
+        assertThrows(RuntimeException.class, () -> jobs.findById(1L));
+        assertEquals(1, replicaReads.get());
+
+        queue.poll(rows -> { });
+        jobs.findById(1L);
+        assertEquals(1, replicaReads.get());
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        CRUD<Job, Long> jobs = jobs(new FakeDatabase(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> jobs.workQueue().batchSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> jobs.workQueue().markOnSuccess(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> jobs.workQueue().markOnSuccess(Map.of("id", 1L)).build());
+    }
+}
@@ -0,0 +1,234 @@
+package com.roelias.crud;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestWriteBehindBuffer {
+
+    @CRUD.Table("readings")
+    public static class Reading {
+        @CRUD.Id
+        private Long id;
+        private double value;
+
+        Reading(long id, double value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Database that is down: every connection attempt waits for {@code release} and then fails
+     */
+    private static final class DownDatabase {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Jdbi jdbi() {
+            return Jdbi.create(() -> {
+                attempts.incrementAndGet();
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new SQLException("database is down");
+            });
+        }
+    }
+
+    /**
+     * Database that accepts every batch and records the values bound for each row
+     */
+    private static final class RecordingDatabase {
+        final List<List<Object>> rows = new CopyOnWriteArrayList<>();
+
+        Jdbi jdbi() {
+            return Jdbi.create(() -> fake(Connection.class, (method, args) -> {
+                if (method.equals("prepareStatement")) {
+                    return statement();
+                }
+                return method.equals("getAutoCommit") ? (Object) true : null;
+            }));
+        }
+
+        private PreparedStatement statement() {
+            List<Object> current = new ArrayList<>();
+            return fake(PreparedStatement.class, (method, args) -> {
+                if (method.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    current.add(args[1]);
+                } else if (method.equals("addBatch")) {
+                    rows.add(new ArrayList<>(current));
+                    current.clear();
+                } else if (method.equals("executeBatch")) {
+                    return new int[rows.size()];
+                }
+                return null;
+            });
+        }
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Object result = answer.answer(method.getName(), args);
+                    if (result != null) {
+                        return result;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    return returnType == int.class ? (Object) 0 : null;
+            }
+        });
+    }
+
+    private static WriteBehindBuffer<Reading, Long> buffer(Jdbi jdbi, int capacity, int flushSize) {
+        CRUD<Reading, Long> readings = new CRUD<>(jdbi, Reading.class, Long.class) { };
+        return WriteBehindBuffer.builder(readings)
+                .capacity(capacity)
+                .flushSize(flushSize)
+                .flushInterval(Duration.ofHours(1))
+                .flushOnShutdown(false)
+                .build();
+    }
+
+    @Test
+    public void testRepeatedWritesAreCoalesced() throws Exception {
+        DownDatabase database = new DownDatabase();
+        WriteBehindBuffer<Reading, Long> buffer = buffer(database.jdbi(), 10, 10);
+        buffer.write(new Reading(1, 1.0));
+        buffer.write(new Reading(1, 2.0));
+        buffer.write(new Reading(2, 1.0));
+        buffer.write(new Reading(1, 3.0));
+
+        assertEquals(2, buffer.getDepth());
+        assertEquals(4, buffer.getWritten());
+        assertEquals(2, buffer.getCoalesced());
+        assertEquals(0, database.attempts.get());
+    }
+
+    @Test
+    public void testRowsInFlightCountAgainstCapacity() throws Exception {
+        DownDatabase database = new DownDatabase();
+        WriteBehindBuffer<Reading, Long> buffer = buffer(database.jdbi(), 2, 2);
+        buffer.write(new Reading(1, 1.0));
+        buffer.write(new Reading(2, 1.0));
+        assertTrue(database.entered.await(5, TimeUnit.SECONDS));
+
+        // The background flush holds both rows: they still use the room
+        assertEquals(2, buffer.getDepth());
+        assertFalse(buffer.offer(new Reading(3, 1.0), Duration.ofMillis(100)));
+        assertFalse(buffer.offer(new Reading(1, 2.0), Duration.ofMillis(100)));
+
+        database.release.countDown();
+        waitForFailedFlush(buffer);
+        assertEquals(2, buffer.getDepth());
+        assertFalse(buffer.offer(new Reading(3, 1.0), Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void testDepthStaysWithinCapacityDuringAnOutage() throws Exception {
+        DownDatabase database = new DownDatabase();
+        database.release.countDown();
+        WriteBehindBuffer<Reading, Long> buffer = buffer(database.jdbi(), 5, 5);
+        for (long id = 1; id <= 50; id++) {
+            buffer.offer(new Reading(id, 1.0), Duration.ofMillis(5));
+            assertTrue(buffer.getDepth() <= 5, "depth " + buffer.getDepth());
+            // Updates of pending rows are still accepted
+            buffer.offer(new Reading((id % 5) + 1, 2.0), Duration.ofMillis(5));
+            assertTrue(buffer.getDepth() <= 5, "depth " + buffer.getDepth());
+        }
+        assertThrows(RuntimeException.class, buffer::flush);
+        assertEquals(5, buffer.getDepth());
+        assertTrue(buffer.getFailedFlushes() > 0);
+        assertEquals(0, buffer.getFlushedRows());
+    }
+
+    @Test
+    public void testNewerWriteWinsOverAFailedBatch() throws Exception {
+        DownDatabase database = new DownDatabase();
+        WriteBehindBuffer<Reading, Long> buffer = buffer(database.jdbi(), 3, 2);
+        buffer.write(new Reading(1, 1.0));
+        buffer.write(new Reading(2, 1.0));
+        assertTrue(database.entered.await(5, TimeUnit.SECONDS));
+
+        // Row 1 is in flight; its new value is pending alongside it
+        assertTrue(buffer.offer(new Reading(1, 2.0), Duration.ofMillis(100)));
+        assertEquals(3, buffer.getDepth());
+
+        database.release.countDown();
+        waitForFailedFlush(buffer);
+        // The failed copy of row 1 is dropped, freeing its room
+        assertEquals(2, buffer.getDepth());
+        assertTrue(buffer.offer(new Reading(3, 1.0), Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void testValuesAreCopiedWhenWritten() throws Exception {
+        RecordingDatabase database = new RecordingDatabase();
+        WriteBehindBuffer<Reading, Long> buffer = buffer(database.jdbi(), 10, 10);
+        Reading reading = new Reading(1, 1.5);
+        buffer.write(reading);
+        // The caller keeps using its object: the buffer must not see this change
+        reading.value = 99.0;
+
+        assertEquals(1, buffer.flush());
+        assertEquals(1, database.rows.size());
+        assertTrue(database.rows.get(0).contains(1.5), database.rows.toString());
+        assertFalse(database.rows.get(0).contains(99.0), database.rows.toString());
+        assertEquals(0, buffer.getDepth());
+    }
+
+    @Test
+    public void testClosedBufferRejectsWrites() {
+        WriteBehindBuffer<Reading, Long> buffer = buffer(Jdbi.create("jdbc:unused:"), 10, 10);
+        buffer.close();
+        assertThrows(IllegalStateException.class, () -> buffer.write(new Reading(1, 1.0)));
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        Jdbi jdbi = Jdbi.create("jdbc:unused:");
+        assertThrows(IllegalArgumentException.class, () -> buffer(jdbi, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> buffer(jdbi, 10, 11));
+    }
+
+    private static void waitForFailedFlush(WriteBehindBuffer<?, ?> buffer) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (buffer.getFailedFlushes() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(buffer.getFailedFlushes() > 0);
+    }
+}
@@ -256,6 +256,40 @@ public class TestSqlBuilderMysql {
         assertEquals(true, params.get("active"));
     }
 
+    @Test
+    public void testUpdateBuilderWithExpression() {
+        SqlBuilder.UpdateBuilder update = SqlBuilder.UpdateBuilder
+                .update("products")
+                .set("name", "Laptop")
+                .setExpression("stock", "stock - :quantity")
+                .where("id = :productId")
+                .param("quantity", 2)
+                .param("productId", 123L);
+
+        String expectedSql = "UPDATE products SET name = :name, stock = stock - :quantity WHERE id = :productId";
+        assertEquals(expectedSql, update.build());
+
+        Map<String, Object> params = update.getParameters();
+        assertEquals("Laptop", params.get("name"));
+        assertEquals(2, params.get("quantity"));
+        assertEquals(123L, params.get("productId"));
+    }
+
+    @Test
+    public void testForUpdateSkipLocked() {
+        SqlBuilder query = SqlBuilder
+                .select()
+                .from("jobs")
+                .where("status = :status")
+                .param("status", "PENDING")
+                .orderBy("created_at")
+                .limit(10)
+                .forUpdateSkipLocked();
+
+        String expectedSql = "SELECT * FROM jobs WHERE status = :status ORDER BY created_at ASC LIMIT 10 FOR UPDATE SKIP LOCKED";
+        assertEquals(expectedSql, query.build());
+    }
+
     @Test
     public void testDeleteBuilder() {
         SqlBuilder.DeleteBuilder delete = SqlBuilder.DeleteBuilder
@@ -358,4 +392,31 @@ public class TestSqlBuilderMysql {
         assertEquals("INACTIVE", query.getParameters().get("status"));
     }
 
+    @Test
+    public void testArrayContainmentConditions() {
+        SqlBuilder query = SqlBuilder
+                .select()
+                .from("tasks")
+                .whereArrayContains("tags", "tags", new String[]{"urgent", "review"})
+                .whereArrayOverlaps("owner_ids", "owners", new Long[]{1L, 2L});
+
+        String expectedSql = "SELECT * FROM tasks WHERE tags @> CAST(:tags AS text[]) " +
+                "AND owner_ids && CAST(:owners AS bigint[])";
+        assertEquals(expectedSql, query.build());
+    }
+
+    @Test
+    public void testJsonConditions() {
+        SqlBuilder query = SqlBuilder
+                .select()
+                .from("users")
+                .whereJsonContains("preferences", "prefs", Map.of("theme", "dark"))
+                .whereJsonPathEquals("preferences", "settings.lang", "lang", "en");
+
+        String expectedSql = "SELECT * FROM users WHERE JSON_CONTAINS(preferences, CAST(:prefs AS JSON)) " +
+                "AND JSON_UNQUOTE(JSON_EXTRACT(preferences, '$.settings.lang')) = :lang";
+        assertEquals(expectedSql, query.build());
+        assertEquals("{\"theme\":\"dark\"}", query.getParameters().get("prefs"));
+    }
+
 }